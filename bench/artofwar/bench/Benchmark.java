@@ -0,0 +1,31 @@
+/*
+ * A piece of code to be timed by the BenchmarkRunner. The runner calls reset() before
+ * every operation without timing it, then times run(). Whatever run() returns is kept
+ * by the runner, so the JIT compiler cannot remove the work as dead code.
+ */
+package artofwar.bench;
+
+/**
+ *
+ * @author mayba4372
+ */
+public abstract class Benchmark
+{
+    private final String name; //Name printed in the results (and matched by the filter)
+
+    protected Benchmark(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    //Prepares the next operation (not timed)
+    public void reset(){
+    }
+
+    //Performs one operation, returns a value that depends on the work done
+    public abstract long run();
+}
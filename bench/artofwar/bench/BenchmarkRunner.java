@@ -0,0 +1,240 @@
+/*
+ * Runs the benchmarks of the generation step, the placement checks, loading boards from
+ * files and drawing the grid. Every benchmark is warmed up first (so the JIT compiler has
+ * compiled it), then timed over several iterations, and the average time per operation
+ * is printed with its spread over the iterations.
+ *
+ * Usage: ant bench [-Dbench.args="[options] [name filter]"]
+ * Options:
+ *   --quick          fewer and shorter iterations (for a quick look, the numbers are noisier)
+ *   --boards=DIR     directory holding the checked in boards (default: bench/boards)
+ * Only the benchmarks whose name contains the filter are run.
+ */
+package artofwar.bench;
+
+import artofwar.GameEngine;
+import artofwar.GridView;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.ImageIcon;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class BenchmarkRunner
+{
+    static private final int generationsPerOperation = 16; //Generations computed from the board per operation
+    static private final int renderedGenerations = 32; //Generations drawn in turn by the rendering benchmark
+
+    static private volatile long sink; //Receives the results of the operations so they are not optimized away
+
+    public static void main(String args[]) throws Exception{
+        int warmupIterations = 5;
+        int iterations = 10;
+        long iterationNanos = 500000000L;
+        String filter = "";
+        File boardDir = new File("bench/boards");
+        for (String arg : args){
+            if (arg.equals("--quick")){
+                warmupIterations = 2;
+                iterations = 3;
+                iterationNanos = 100000000L;
+            }
+            else if (arg.startsWith("--boards=")){
+                boardDir = new File(arg.substring("--boards=".length()));
+            }
+            else{
+                filter = arg;
+            }
+        }
+
+        System.out.printf("%-32s %14s %10s %14s%n", "Benchmark", "us/op", "+-", "ops/s");
+        for (Benchmark benchmark : createBenchmarks(boardDir)){
+            if (!benchmark.getName().contains(filter)){
+                continue;
+            }
+            //Warm up, then keep the average time per operation of every iteration
+            for (int i = 0; i < warmupIterations; i++){
+                iterate(benchmark, iterationNanos);
+            }
+            double nanosPerOp[] = new double[iterations];
+            for (int i = 0; i < iterations; i++){
+                nanosPerOp[i] = iterate(benchmark, iterationNanos);
+            }
+            report(benchmark.getName(), nanosPerOp);
+        }
+    }
+
+    //Performs operations until the desired time was spent in them, returns the average nanoseconds per operation
+    private static double iterate(Benchmark benchmark, long iterationNanos){
+        long timed = 0;
+        long operations = 0;
+        long result = 0;
+        while (timed < iterationNanos){
+            benchmark.reset();
+            long start = System.nanoTime();
+            result += benchmark.run();
+            timed += System.nanoTime() - start;
+            operations++;
+        }
+        sink = result;
+        return (double) timed / operations;
+    }
+
+    //Prints the mean time per operation, its standard deviation over the iterations, and the operations per second
+    private static void report(String name, double nanosPerOp[]){
+        double mean = 0;
+        for (double nanos : nanosPerOp){
+            mean += nanos / nanosPerOp.length;
+        }
+        double variance = 0;
+        for (double nanos : nanosPerOp){
+            variance += (nanos - mean) * (nanos - mean) / Math.max(1, nanosPerOp.length - 1);
+        }
+        System.out.printf("%-32s %14.3f %10.3f %14.1f%n", name, mean / 1e3, Math.sqrt(variance) / 1e3, 1e9 / mean);
+    }
+
+    //Creates every benchmark, using the boards in boardDir
+    private static List<Benchmark> createBenchmarks(File boardDir) throws IOException{
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (int size : Boards.sizes){
+            for (int density : Boards.densities){
+                benchmarks.add(generationBenchmark(boardDir, size, density));
+            }
+        }
+        benchmarks.add(placementBenchmark(boardDir, 256, 35));
+        for (int density : Boards.densities){
+            benchmarks.add(loadBenchmark(boardDir, 256, density));
+        }
+        benchmarks.add(renderBenchmark(boardDir, 256, 35));
+        return benchmarks;
+    }
+
+    //Computes generationsPerOperation generations of the board (starting again from the board every operation)
+    private static Benchmark generationBenchmark(File boardDir, final int size, int density) throws IOException{
+        final GameEngine engine = Boards.load(boardDir, size, density);
+        final int board[] = new int[size * size];
+        engine.copyStates(board);
+        return new Benchmark("generation " + size + "x" + size + " d" + density) {
+            @Override
+            public void reset(){
+                copyBoard(board, engine, size);
+            }
+
+            @Override
+            public long run(){
+                for (int i = 0; i < generationsPerOperation; i++){
+                    engine.computeNextGeneration();
+                    engine.plantNextGeneration();
+                }
+                return engine.getPopulation(GameEngine.PLAYER);
+            }
+        };
+    }
+
+    //Checks whether a block can be placed at every cell of the board (the check made for every click)
+    private static Benchmark placementBenchmark(File boardDir, final int size, int density) throws IOException{
+        final GameEngine engine = Boards.load(boardDir, size, density);
+        return new Benchmark("placement " + size + "x" + size + " d" + density) {
+            @Override
+            public long run(){
+                long legal = 0;
+                for (int y = 0; y < size; y++){
+                    for (int x = 0; x < size; x++){
+                        if (engine.canPlantBlock(x, y)){
+                            legal++;
+                        }
+                    }
+                }
+                return legal;
+            }
+        };
+    }
+
+    //Reads the board from its file into an empty engine
+    private static Benchmark loadBenchmark(File boardDir, final int size, int density){
+        final String file = new File(boardDir, Boards.fileName(size, density)).getPath();
+        final GameEngine engine = new GameEngine(size, size);
+        return new Benchmark("plantFromFile " + size + "x" + size + " d" + density) {
+            @Override
+            public void reset(){
+                engine.makeEveryoneDead();
+            }
+
+            @Override
+            public long run(){
+                try {
+                    engine.plantFromFile(file);
+                } catch (IOException e){
+                    throw new RuntimeException(e);
+                }
+                return engine.getPopulation(GameEngine.DEAD);
+            }
+        };
+    }
+
+    //Draws the next of renderedGenerations generations off-screen, as updateScreen does for every frame
+    private static Benchmark renderBenchmark(File boardDir, final int size, int density) throws IOException{
+        GameEngine engine = Boards.load(boardDir, size, density);
+        final int generations[][] = new int[renderedGenerations][size * size];
+        for (int[] states : generations){
+            engine.copyStates(states);
+            engine.computeNextGeneration();
+            engine.plantNextGeneration();
+        }
+
+        //Same sprites as the game, the view is sized so each cell is 3x3 pixels
+        String files[] = {"dead.png", "player.png", "enemy.png", "base1.png", "base2.png"};
+        Image sprites[] = new Image[files.length];
+        for (int i = 0; i < files.length; i++){
+            sprites[i] = new ImageIcon(files[i]).getImage();
+        }
+        final GridView view = new GridView(size, size, sprites, Color.yellow, true);
+        //Size the view on the event dispatch thread, which also receives the resize event, and wait for it
+        try {
+            javax.swing.SwingUtilities.invokeAndWait(new Runnable() {
+                @Override
+                public void run(){
+                    view.setSize(size * 3, size * 3);
+                }
+            });
+            javax.swing.SwingUtilities.invokeAndWait(new Runnable() {
+                @Override
+                public void run(){
+                }
+            });
+        } catch (InterruptedException | java.lang.reflect.InvocationTargetException e){
+            throw new IllegalStateException(e);
+        }
+        final BufferedImage screen = new BufferedImage(size * 3, size * 3, BufferedImage.TYPE_INT_RGB);
+        return new Benchmark("render " + size + "x" + size + " d" + density) {
+            private int next = 0; //Generation drawn by the next operation
+
+            @Override
+            public long run(){
+                view.updateCells(generations[next]);
+                next = (next + 1) % renderedGenerations;
+                Graphics2D g = screen.createGraphics();
+                view.paint(g);
+                g.dispose();
+                return screen.getRGB(0, 0);
+            }
+        };
+    }
+
+    //Sets every cell of the engine to the board
+    private static void copyBoard(int board[], GameEngine engine, int size){
+        for (int i = 0; i < board.length; i++){
+            if (engine.getState(i % size, i / size) != board[i]){
+                engine.setState(i % size, i / size, board[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Seeded, reproducible boards used by the benchmarks. The small boards are checked in
+ * under bench/boards (in the format read by GameEngine.plantFromFile), the big ones
+ * are generated from the same seed each time because their files would be too large.
+ *
+ * Usage: java -cp build/classes:build/bench/classes artofwar.bench.Boards [directory]
+ * (re)writes the checked in boards into the directory (default: bench/boards).
+ */
+package artofwar.bench;
+
+import artofwar.GameEngine;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class Boards
+{
+    static public final long seed = 20160117L; //Seed every board is generated from
+    static public final int sizes[] = {64, 256, 1024}; //Width and height of the boards
+    static public final int densities[] = {10, 35}; //Percentage of cells alive on the boards
+    static public final int maxCheckedInSize = 256; //Bigger boards are generated instead of read from a file
+
+    //Returns the name of the file holding the board of the desired size and density
+    static public String fileName(int size, int density){
+        return "board-" + size + "x" + size + "-d" + density + ".txt";
+    }
+
+    //Returns the states of the board of the desired size and density, row by row (cell (x, y) is at y*size + x)
+    //Living cells are split evenly between the players, and each player has a base away from the other,
+    //planted by GameEngine.plantBase so it has the shape of the bases of a game
+    static public int[] generate(int size, int density){
+        Random rand = new Random(seed + size * 100 + density);
+        int states[] = new int[size * size];
+        for (int i = 0; i < states.length; i++){
+            if (rand.nextInt(100) < density){
+                states[i] = rand.nextBoolean() ? GameEngine.PLAYER : GameEngine.COMPUTER;
+            }
+        }
+        GameEngine engine = new GameEngine(size, size);
+        engine.setStates(states);
+        engine.plantBase(size / 4, size / 4, GameEngine.PLAYER);
+        engine.plantBase(size * 3 / 4, size * 3 / 4, GameEngine.COMPUTER);
+        engine.copyStates(states);
+        return states;
+    }
+
+    //Returns a new engine holding the board of the desired size and density (read from dir if it is checked in)
+    static public GameEngine load(File dir, int size, int density) throws IOException{
+        GameEngine engine = new GameEngine(size, size);
+        if (size <= maxCheckedInSize){
+            engine.plantFromFile(new File(dir, fileName(size, density)).getPath());
+        }
+        else{
+            int states[] = generate(size, density);
+            for (int i = 0; i < states.length; i++){
+                if (states[i] != GameEngine.DEAD){
+                    engine.setState(i % size, i / size, states[i]);
+                }
+            }
+        }
+        return engine;
+    }
+
+    //Writes the board in the format read by GameEngine.plantFromFile ("x y state" for each living cell)
+    static public void write(File file, int size, int states[]) throws IOException{
+        try (PrintWriter out = new PrintWriter(file)){
+            for (int i = 0; i < states.length; i++){
+                if (states[i] != GameEngine.DEAD){
+                    out.println((i % size) + " " + (i / size) + " " + states[i]);
+                }
+            }
+        }
+    }
+
+    public static void main(String args[]) throws IOException{
+        File dir = new File(args.length > 0 ? args[0] : "bench/boards");
+        dir.mkdirs();
+        for (int size : sizes){
+            for (int density : densities){
+                if (size <= maxCheckedInSize){
+                    write(new File(dir, fileName(size, density)), size, generate(size, density));
+                }
+            }
+        }
+    }
+}
@@ -6,12 +6,12 @@
 package artofwar;
 
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.Scanner;
 import javax.swing.*;
 import static javax.swing.JFrame.EXIT_ON_CLOSE;
 import java.util.concurrent.ThreadLocalRandom;
@@ -19,6 +19,8 @@ import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.Clip;
 import static javax.swing.WindowConstants.DISPOSE_ON_CLOSE;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 /**
  *
@@ -32,28 +34,40 @@ public class ArtOfWar extends JFrame
     static private final int numGenerations = 50000; //Number of total generations
     static private int generationNum; //Keeps track of current generation
     
-    static private final int numCellsY = 50; //Height of grid
-    static private final int numCellsX = 50; //Width of grid
+    static private final int defaultCellsY = 50; //Height of grid if none is given
+    static private final int defaultCellsX = 50; //Width of grid if none is given
+    private final int numCellsY; //Height of grid
+    private final int numCellsX; //Width of grid
     
     static private Color deadColor = Color.YELLOW;  //Color of dead cells
     
     private String fileName = "Initial cells.txt"; //File name to load cells from (if wanted)
     
-    //states[][] keeps track of the current generation's cell states. Explanation of each state:
-    //1:Player 1 (human) normal cells, 2:Player 2 (computer) normal cells
-    //3:Player 1 base cells 4:Player 2 base cells
-    private int states[][] = new int[numCellsY][numCellsX];
-    //Used to update the states for the next generation (then it is used to overwrite the states array)
-    private int statesNext[][] = new int[numCellsY][numCellsX];
+    //Headless engine that keeps track of the cell states and applies the rules of the game
+    private GameEngine engine;
     
-    static private int startOfGrid = 0; //Defines the start of the grid (starting coordinate)
+    private GridView gridView; //Component that draws the grid and receives the user's clicks
     
-    //A 2D array of JButtons (used for displaying the grid to the user)
-    private JButton buttonArray[][] = new JButton[numCellsY][numCellsX];
-    private JPanel buttons = new JPanel(); //Container for the button field 
+    //The generations are computed on the main thread and handed to the event dispatch thread through snapshots,
+    //which are drawn at the refresh rate of the screen (skipping any generations that could not be drawn in time)
+    private SnapshotRing snapshots;
+    static private final int refreshRate = 60; //Number of times per second the screen checks for a new generation
+    private Timer frameTimer; //Draws the newest generation on the event dispatch thread
+    //Phase of the game, and the moves made by the user (which are applied by the main thread between generations)
+    private final GameLifecycle lifecycle = new GameLifecycle();
+    //Chooses the computer's moves by looking ahead (null if the computer places them at random)
+    private MonteCarloAI ai;
     
     private JPanel hud = new JPanel(); //Container for the statistics at the top of the screen
     private JLabel fpsText = new JLabel("FPS: "); //Text used at the top of the screen    
+    //Time spent in each phase of a frame, shown in fpsText (at most twice per second)
+    private final FrameTimings timings = new FrameTimings();
+    static private final long fpsTextInterval = 500000000L; //Nanoseconds between updates of fpsText
+    private long fpsTextUpdated; //Time fpsText was last updated
+    private boolean framesStarted = false; //Whether the first frame was started
+    private long frameStart; //Time the current frame started (after the pause before it)
+    private long nextFrame; //Time the next frame is due
+    private JLabel stalemateText = new JLabel(); //Tells the user when the grid keeps repeating itself
     static private String genString = "Generation: " + generationNum; //String added to the genNum label
     static private JLabel genNum = new JLabel(); //Used to store the current generation number
     static private boolean gridLines = true; //Boolean that controls whether the grid lines are enabled
@@ -68,126 +82,160 @@ public class ArtOfWar extends JFrame
     static int FPSMin = 1; //Minimum frames per second
     static int FPSMax = 50; //Maximum frames per second
     static int FPSInit = 10; //Initial frames per second
-    //JSlider used to control the frames per second
+    //JSlider used to control the frames per second (the number of generations computed per second)
     static JSlider framesPerSecond = new JSlider(JSlider.HORIZONTAL, FPSMin, FPSMax, FPSInit);
+    //Value of the JSlider, which the main thread reads without touching the JSlider itself
+    static volatile int generationsPerSecond = FPSInit;
     
     static boolean gameEnded = false; //Boolean keeps track of whether the game has ended (if someone has won)
     
     /*
      * Constructor used to create the ArtOfWar object
-     * Initializes the button grid and associated variables
+     * Initializes the button grid (of the desired width and height in cells) and associated variables
      */
-    public ArtOfWar() 
+    public ArtOfWar(int numCellsX, int numCellsY) 
     {  
+        this.numCellsX = numCellsX;
+        this.numCellsY = numCellsY;
+        engine = new GameEngine(numCellsX, numCellsY);
+        engine.setTimings(timings);
+        
         //Ensures the states array is filled with 0s (sets all cells to dead)
-        makeEveryoneDead();
+        engine.makeEveryoneDead();
         
-        //Set aesthetic attributes of the buttons JPanel
-        buttons.setSize(width, height);
-        buttons.setBackground(Color.black);
-        buttons.setLayout(new GridLayout(numCellsX, numCellsY));
-        buildButtonField(buttons); //Builds the 2D array of JButtons
+        //Create the view of the grid with the image of each state (indexed by state)
+        Image sprites[] = {deadImage.getImage(), playerImage.getImage(), AIImage.getImage(),
+            base1Image.getImage(), base2Image.getImage()};
+        gridView = new GridView(numCellsX, numCellsY, sprites, deadColor, gridLines);
+        snapshots = new SnapshotRing(numCellsX * numCellsY);
+        gridView.setSize(width, height);
+        //After a zoom or move the view draws the newest generation again, as it only keeps the cells it showed
+        gridView.setCellSource(new Runnable(){
+            @Override
+            public void run(){
+                drawSnapshot(snapshots.takeLatest());
+            }
+        });
+        //Add a mouse listener to listen for user clicks and handle them correctly
+        gridView.addMouseListener(new MouseHandler());
         
         //Add the desired statistics to the hud JPanel
         hud.add(genNum, BorderLayout.NORTH);
         hud.add(fpsText, BorderLayout.EAST);
+        hud.add(stalemateText);
         
         //Set up the JSlider used for the FPS
         framesPerSecond.setMinorTickSpacing(1);
         framesPerSecond.setMajorTickSpacing(5);
         framesPerSecond.setPaintTicks(true);
         framesPerSecond.setPaintLabels(true);      
+        framesPerSecond.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e){
+                generationsPerSecond = framesPerSecond.getValue();
+            }
+        });
         //Add the FPS slider to the hud
         hud.add(framesPerSecond, BorderLayout.SOUTH);
         
-        //Add the button field and the hud to the JFrame (ArtOfWar)
-        add(buttons, BorderLayout.CENTER);
+        //Add the grid and the hud to the JFrame (ArtOfWar)
+        add(gridView, BorderLayout.CENTER);
         add(hud, BorderLayout.NORTH);
         
+        //Draw the newest generation at the refresh rate of the screen
+        frameTimer = new Timer(1000 / refreshRate, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e){
+                updateScreen();
+                updateFpsText();
+            }
+        });
+        frameTimer.start();
+        
         //Calls paint() and shows the JFrame to the user
         setVisible(true);
     }
     
     /*
      * Used to handle mouse clicks from the user
-     * Finds out if the mouse click is a valid move and executes code accordingly
+     * Finds out which cell was clicked, if the mouse click is a valid move and executes code accordingly
      */
     private class MouseHandler extends MouseAdapter {
-        public int row, column;
-        //Constructor initializes row and column variables
-        public MouseHandler(int r, int c)
-        {
-            this.row = r;
-            this.column = c;
-        }
-        //Method is called whenever a mouse is clicked (on a button)
+        //Method is called whenever a mouse is clicked (on the grid)
         public void mouseClicked(MouseEvent e)
         {
-            //Verifies the mouse click was the left mouse button (primary button)
-            if(e.getButton() == 1)
+            //Find the row and column of the cell that was clicked
+            final int row = gridView.getRowAt(e.getY());
+            final int column = gridView.getColumnAt(e.getX());
+            //Verifies the mouse click was the left mouse button (primary button) on a cell of a game in progress
+            if(e.getButton() == 1 && row >= 0 && column >= 0 && lifecycle.getPhase() != GameLifecycle.Phase.ENDED)
             {
-                if (!readyToStart()){ //If this is the first click of the game
-                    if(plantBase(column, row, 1) == 0){ //If the coordinates are a legal place to plant a base
-                        //Create random x and y coordinates for the computer's base
-                        int randX = ThreadLocalRandom.current().nextInt(1, numCellsX-2);
-                        int randY = ThreadLocalRandom.current().nextInt(1, numCellsY-2);
-                        //Ensure the computer's base is 15 units away from the player's base
-                        while (countBaseCell(randX, randY, 3, 15) != 0){
-                            //If the computer's base is too close to the player's base, select new x and y coordinates
-                            randX = ThreadLocalRandom.current().nextInt(1, numCellsX-2);
-                            randY = ThreadLocalRandom.current().nextInt(1, numCellsY-2);
-                        }
-                        //Plant the computer's base
-                        plantBase(randX, randY, 2);
+                //The move is made by the main thread between generations
+                lifecycle.postMove(new Runnable() {
+                    @Override
+                    public void run(){
+                        makeMove(column, row);
                     }
-                }
-                //Otherwise, make sure the coordinates are 5 units away from any base (to be a legal move)
-                else if(countBaseCell(column, row, 4, 5) == 0 && countBaseCell(column, row, 3, 5) == 0){
-                    //Plant the player's 3x3 block
-                    plantBlock(column-1, row-1, 3, 3, 1);
-                    //Choose random coordinates for the computer's base
-                    int randX = ThreadLocalRandom.current().nextInt(0, numCellsX-2);
-                    int randY = ThreadLocalRandom.current().nextInt(0, numCellsY-2);
-                    //Plant the computer's 3x3 block
-                    plantBlock(randX, randY, 3, 3, 2);
-                }
+                });
             }
         }
     }
     
-    /*
-     * Plants the player's or computer's base
-     */
-    public int plantBase(int centerX, int centerY, int state){
-        //Returns -1 if the position of the base is not allowed
-        if (centerX == 0 || centerY == 0 || centerX == numCellsX-1 || centerY == numCellsY-1){
-            return -1;
-        }
-        
-        //Calculate the ending column and row of the base
-        int endCol = Math.min(centerX-1 + 3, numCellsX);
-        int endRow = Math.min(centerY-1 + 3, numCellsY);
-        
-        //Iterate through the desired coordinates
-        for (int i = centerY-1; i < endRow; i++) {
-            for (int j = centerX-1; j < endCol; j++) {
-                if (((i == centerY+1 || i == centerY-1) && j != centerX) || ((j == centerX+1 || j == centerX-1) && i != centerY)){
-                    //Set the 4 corners of the center square to be the desired base (player or computer)
-                    if (state == 1){
-                        states[i][j] = 3;
-                    }
-                    else{
-                        states[i][j] = 4;
-                    }
+    //Makes the move of the user (and the computer's reply) for a click on the desired cell
+    private void makeMove(int column, int row){
+        if (lifecycle.getPhase() == GameLifecycle.Phase.AWAITING_BASE){ //If this is the first click of the game
+            //Keep the cells the player's base covers, to put them back if the computer's base has no room
+            int covered[] = new int[9];
+            if (column > 0 && row > 0 && column < numCellsX-1 && row < numCellsY-1){
+                for (int i = 0; i < 9; i++){
+                    covered[i] = engine.getState(column-1 + i % 3, row-1 + i / 3);
                 }
-                else{
-                    //Otherwise, set the cell to be part of the desired army (player or computer)
-                    states[i][j] = state;
+            }
+            if(engine.plantBase(column, row, 1) == 0){ //If the coordinates are a legal place to plant a base
+                //Plant the computer's base (15 units away from the player's base)
+                int spot[] = ai == null ? null : ai.chooseBase(engine, ThreadLocalRandom.current());
+                if (spot != null){
+                    engine.plantBase(spot[0], spot[1], GameEngine.COMPUTER);
                 }
+                else if (!engine.plantComputerBase(ThreadLocalRandom.current())){
+                    //No spot is far enough from this base, so refuse it and wait for another click
+                    for (int i = 0; i < 9; i++){
+                        engine.setState(column-1 + i % 3, row-1 + i / 3, covered[i]);
+                    }
+                    return;
+                }
+                //Both bases are placed, so the game can start
+                lifecycle.moveTo(GameLifecycle.Phase.RUNNING);
+            }
+        }
+        //Otherwise, make sure the coordinates are 5 units away from any base (to be a legal move)
+        else if(engine.canPlantBlock(column, row)){
+            //Plant the player's 3x3 block
+            engine.plantBlock(column-1, row-1, 3, 3, 1);
+            //Plant the computer's 3x3 block, at a random spot unless the AI chooses one
+            if (ai != null){
+                int spot[] = ai.chooseBlock(engine, ThreadLocalRandom.current());
+                engine.plantBlock(spot[0], spot[1], 3, 3, GameEngine.COMPUTER);
+            }
+            else{
+                engine.plantComputerBlock(ThreadLocalRandom.current());
             }
         }
-        //Returns 0 to indicate successful execution of the method
-        return 0;
+    }
+    
+    //Makes the moves the user made since the last generation (called on the main thread)
+    //Returns true if any move was made, in which case the screen is given the new cells
+    public boolean runPendingMoves(){
+        boolean moved = false;
+        Runnable move;
+        while ((move = lifecycle.pollMove()) != null){
+            move.run();
+            moved = true;
+        }
+        if (moved){
+            snapshots.publish(engine);
+        }
+        return moved;
     }
     
     //Initializes the window, specifically plants a generation if wanted
@@ -198,61 +246,12 @@ public class ArtOfWar extends JFrame
     
     public void plantFirstGeneration() throws IOException {
         //Plant first generation from file
-        //plantFromFile(fileName);
+        //engine.plantFromFile(fileName);
         
         //Or plant first generation using defined functions to create patterns
-        //plantBlock (20, 20, 5, 20, 1);
+        //engine.plantBlock (20, 20, 5, 20, 1);
     }
     
-    //Reads the first generation's alive cells from a file
-    public void plantFromFile(String fileName) throws IOException {
-        //Used to read from the desired file
-        FileReader f = new FileReader(fileName);
-        Scanner s = new Scanner(f);
-
-        int x, y;
-        //Format of file: "x-coord y-coord state"
-        //Loops throught the entire file
-        while (s.hasNext()) {
-            x = s.nextInt();
-            y = s.nextInt();
-            
-            //Set the desired cell to the specified state
-            states[y][x] = s.nextInt();
-        }
-    }
-    
-    //Plants a block (rectangle) with the desired attributes
-    public void plantBlock(int startX, int startY, int numColumns, int numRows, int state) {
-        //If the player has selected the left column or top row, offset the click to make it a legal move
-        if (startX < 0){
-            startX = 0;
-        }
-        if (startY < 0){
-            startY = 0;
-        }
-        
-        //Find the ending columns and rows with the desired attributes
-        int endCol = Math.min(startX + numColumns, numCellsX);
-        int endRow = Math.min(startY + numRows, numCellsY);
-        
-        //Set the specified cells to the desired state
-        for (int i = startY; i < endRow; i++) {
-            for (int j = startX; j < endCol; j++) {
-                states[i][j] = state;
-            }
-        }
-    }
-    
-    //Sets all cells to dead
-    public void makeEveryoneDead() {
-        for (int i = 0; i < numCellsX; i++) {
-            for (int j = 0; j < numCellsY; j++) {
-                states[i][j] = 0;
-            }
-        }
-    }   
-    
     //Plays the background music
     public static void playSound() {
         try {
@@ -270,241 +269,90 @@ public class ArtOfWar extends JFrame
         }
     }
     
-    //Returns a boolean indicating whether the core game is ready to be initialized
-    public boolean readyToStart(){
-        //Goes through all grid cells checking for a cell designated as a player 1 base
-        for (int y = 0; y < numCellsY; y++){
-            for (int x= 0; x < numCellsX; x++){
-                if (states[y][x] == 3){
-                    return true;
-                }
-            }
-        }
-        //Returns false if no player 1 base cell is found
-        return false;
-    }
-    
     //Draws the generation number into the genNum JLabel
     public static void drawGenerationNumLabel(){
         genString = "Generation: " + generationNum;
         genNum.setText(genString);
     }
     
-    //Builds the button field used for user interaction and display
-    public void buildButtonField(JPanel buttons)
-    {
-        for(int r = 0; r < numCellsY; r++)
-        {
-            for(int c = 0; c < numCellsX; c++)
-            {
-                //Assigns a new button to the desired array index
-                buttonArray[r][c] = new JButton();
-                //Add a mouse listener to listen for user clicks and handle them correctly
-                buttonArray[r][c].addMouseListener(new MouseHandler(r,c));
-                
-                //Disables button borders if grid lines are not wanted
-                if (!gridLines){
-                    buttonArray[r][c].setBorderPainted(false);
-                }
-                
-                //Adds the JButton to the buttons JPanel, so the user can see it
-                buttons.add(buttonArray[r][c]);
-            }
-        }
-    }
-    
-    //Updates the screen with the latest data (similar to the paint() method for JFrame)
+    //Updates the screen with the newest generation, if there is one (called on the event dispatch thread)
+    //Only the cells that changed since the last update are redrawn
     public void updateScreen(){
-        //Loop through all cells
-        for (int y = 0; y < numCellsY; y++){
-            for (int x = 0; x < numCellsX; x++){
-                //Set the image/colour of the cell according to its state
-                if (states[y][x] == 1){ //Player 1 soldier
-                    buttonArray[y][x].setIcon(playerImage);
-                }
-                else if (states[y][x] == 2){ //Player 2 soldier
-                    buttonArray[y][x].setIcon(AIImage);
-                }
-                else if (states[y][x] == 3){ //Player 1 base
-                    buttonArray[y][x].setIcon(base1Image);
-                }
-                else if (states[y][x] == 4){ //Player 2 base
-                    buttonArray[y][x].setIcon(base2Image);
-                }
-                else{ //Otherwise, it is a dead cell
-                    buttonArray[y][x].setBackground(deadColor);
-                    buttonArray[y][x].setIcon(deadImage);
-                }
-            }
-        }
+        drawSnapshot(snapshots.takeNewest());
     }
-    
-    //Count how many base cells (or any desired state) are within the specified distance
-    public int countBaseCell(int x, int y, int state, int distance){
-        //Calculate the rows/columns that must be traversed 
-        int startCol = Math.max(x-distance, startOfGrid);
-        int endCol = Math.min(x+distance, buttonArray.length - 1);
-        int startRow = Math.max(y-distance, startOfGrid);
-        int endRow = Math.min(y+distance, buttonArray.length - 1);
-        
-        int baseCount = 0; //Keeps track of how many of the desired cells are nearby
-        //Loop through the calculated rows/columns looking for specific states
-        for (int i = startRow; i <= endRow; i++){
-            for (int j = startCol; j <= endCol; j++){
-                if (states[i][j] == state){
-                    baseCount++; //Increment baseCount if a cell with the desired state is found
-                }
-            }
+
+    //Draws the snapshot taken from the ring (if any) and gives it back
+    private void drawSnapshot(SnapshotRing.Snapshot snapshot){
+        if (snapshot == null){
+            return;
         }
-        return baseCount;
+        long start = System.nanoTime();
+        gridView.updateCells(snapshot.getStates());
+        generationNum = snapshot.getGeneration();
+        drawGenerationNumLabel(); //Update the generation number
+        snapshots.release();
+        timings.record(FrameTimings.Phase.DRAW, System.nanoTime() - start);
     }
     
-    //Checks if exactly 1 base cell is touching a specified cell
-    public boolean checkBaseCell(int x, int y, int state){
-        //Calculate the rows/columns that must be traversed
-        int startCol = Math.max(x-1, startOfGrid);
-        int endCol = Math.min(x+1, buttonArray.length - 1);
-        int startRow = Math.max(y-1, startOfGrid);
-        int endRow = Math.min(y+1, buttonArray.length - 1);
-        
-        int baseCount = 0; //Keeps track of how many of the desired cells are nearby
-        //Loop through the calculated rows/columns looking for specific states
-        for (int i = startRow; i <= endRow; i++){
-            for (int j = startCol; j <= endCol; j++){
-                if (states[i][j] == state){
-                    baseCount++; //Increment baseCount if a cell with the desired state is found
-                }
-            }
+    //Shows the frames per second achieved and requested, and the time spent computing and drawing each frame
+    //(called on the event dispatch thread)
+    public void updateFpsText(){
+        long now = System.nanoTime();
+        if (now - fpsTextUpdated < fpsTextInterval || timings.getCount(FrameTimings.Phase.FRAME) == 0){
+            return;
         }
-        //Return true if exactly one base cell is found, otherwise return false
-        if (baseCount == 1){
-            return true;
-        }
-        return false;
+        fpsTextUpdated = now;
+        fpsText.setText(String.format("FPS: %.1f of %d (compute %.2f ms, draw %.2f ms)",
+                timings.getFramesPerSecond(), generationsPerSecond,
+                timings.getRecentMillis(FrameTimings.Phase.COMPUTE) + timings.getRecentMillis(FrameTimings.Phase.PLANT),
+                timings.getRecentMillis(FrameTimings.Phase.DRAW)));
     }
     
-    //Overwrites the current generation's 2-D array with the values from the next generation's 2-D array
-    public void plantNextGeneration() {
-        //Loop through all of the 1D arrays within statesNext (which is a 2D array)
-        for (int y = 0; y < numCellsX; y++) {
-            //Copy the 1D array from the "statesNext" 2D array into the "states" 2D array
-            System.arraycopy(statesNext[y], 0, states[y], 0, numCellsY);
+    //Sleeps until the next frame is due. The time already spent on the last frame is taken off the pause,
+    //so the frames per second match the slider. If the last frame took longer than a whole pause, the next
+    //frame starts straight away (without trying to catch up on the frames that were missed)
+    public void waitForNextFrame(){
+        long now = System.nanoTime();
+        if (!framesStarted){
+            framesStarted = true;
+            frameStart = now;
+            nextFrame = now;
         }
-    }  
-    
-    //Counts the amount of living neighbours beside the desired cell
-    public int countLivingNeighbors(int x, int y, int state) {
-        //Define the bounding area of the search (the row/columns directly surrounding the cell)
-        //Ensures that there is not a ArrayIndexOutOfBoundsException due to negative indices
-        //startOfGrid is set to 0 (the first index/coordinate of the grid)
-        int rowStart  = Math.max(y - 1, startOfGrid);
-        int rowFinish = Math.min(y + 1, buttonArray.length - 1);
-        int colStart  = Math.max(x - 1, startOfGrid);
-        int colFinish = Math.min(x + 1, buttonArray.length - 1);
-        
-        //Initialize a count variable to store the amount of living neighbors
-        int count = 0;
-        
-        //Loop through the desired rows
-        for (int curRow = rowStart; curRow <= rowFinish; curRow++) {
-            //Loop through the desired columns
-            for (int curCol = colStart; curCol <= colFinish; curCol++) {
-                //If the current neighbor found is alive AND it is not the cell itself (that we are checking)
-                if (states[curRow][curCol] == state && !(curRow == y && curCol == x)){
-                    //Increment the count of living neighbors
-                    count++;
-                }
+        nextFrame += 1000000000L / generationsPerSecond;
+        long pause = nextFrame - now;
+        if (pause > 0){
+            try {
+                Thread.sleep(pause / 1000000, (int) (pause % 1000000));
             }
+            catch (InterruptedException e) {}
         }
-        return count;
+        else{
+            nextFrame = now;
+        }
+        long end = System.nanoTime();
+        timings.record(FrameTimings.Phase.SLEEP, end - now);
+        if (timings.getCount(FrameTimings.Phase.SLEEP) > 1){
+            timings.record(FrameTimings.Phase.FRAME, end - frameStart);
+        }
+        frameStart = end;
     }
     
-    //Applies the rules of The Art of War to set the integer values of the statesNext[][] array,
-    //based on the current values in the states[][] array
-    public void computeNextGeneration() {
-        //Keeps track of how many base cells there are
-        int bases1 = 0;
-        int bases2 = 0;
-        
-        //Loop through all cells and update them in the statesNext array
-        for (int y = 0; y < numCellsY; y++){
-            for (int x= 0; x < numCellsX; x++){
-                //Count the number of user controlled neighbours and computer controlled neighbours
-                int numNeighbors1 = countLivingNeighbors(x, y, 1); //user
-                int numNeighbors2 = countLivingNeighbors(x, y, 2); //computer
-                //Apply rules for standard user/computer cells
-                if (states[y][x] == 1 || states[y][x] == 2) {
-                    int numOwnNeighbors;
-                    int numEnemyNeighbors;
-                    //Find out the amount of friendly neighbours and enemy neighbours
-                    if (states[y][x] == 1){
-                        numOwnNeighbors = numNeighbors1;
-                        numEnemyNeighbors = numNeighbors2;
-                    }
-                    else{
-                        numOwnNeighbors = numNeighbors2;
-                        numEnemyNeighbors = numNeighbors1;
-                    }
-                    
-                    //If it's too lonely (0-2 neighbours) or too crowded (6-8 neighbours) the cell will die
-                    if (numOwnNeighbors <= 2 || numOwnNeighbors >= 6){
-                        statesNext[y][x] = 0;
-                    }
-                    //If there are more than 2 enemies surrounding the cell, it will die
-                    else if (numEnemyNeighbors > 2){
-                        statesNext[y][x] = 0;
-                    }
-                    //Otherwise, it stays alive
-                    else{ 
-                        statesNext[y][x] = states[y][x];
-                    }
+    //Shows that the grid repeats itself every period generations (or hides the message if period is 0)
+    public void showStalemate(final int period){
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run(){
+                if (period == 0){
+                    stalemateText.setText("");
                 }
-                //If the cell is a base cell
-                else if (states[y][x] == 3 || states[y][x] == 4){
-                        int numEnemyNeighbors;
-                        //Find the number of enemy neighbours (depends on type of base cell)
-                        if (states[y][x] == 3){
-                            bases1++;
-                            numEnemyNeighbors = numNeighbors2;
-                        }
-                        else{
-                            bases2++;
-                            numEnemyNeighbors = numNeighbors1;
-                        }
-                        
-                        //If the base cell has 3 or more neighbours then it will die
-                        if (numEnemyNeighbors >= 3){
-                            statesNext[y][x] = 0;
-                        }
-                        //Otherwise, the base cell stays alive
-                        else{
-                            statesNext[y][x] = states[y][x];
-                        }
-                }                
-                else{ //If the cell is currently dead
-                    //If it has 3 user cell neighbours OR it has a user cell base close to it and no enemy cells beside it
-                    if ((numNeighbors1 == 3) || (checkBaseCell(x, y, 3) && numNeighbors2 == 0)){
-                        statesNext[y][x] = 1;
-                    }
-                    //If it has 3 computer cell neighbours OR it has a computer cell base close to it and no enemy cells beside it
-                    else if ((numNeighbors2 == 3) || (checkBaseCell(x, y, 4) && numNeighbors1 == 0)){
-                        statesNext[y][x] = 2;
-                    }
-                    //Otherwise, the cell stays dead
-                    else{                        
-                        statesNext[y][x] = 0;
-                    }
+                else if (period == 1){
+                    stalemateText.setText("Stalemate: nothing changes until you move");
+                }
+                else{
+                    stalemateText.setText("Stalemate: the grid repeats every " + period + " generations");
                 }
             }
-        }
-        //If there are no user bases, then end the game
-        if (bases1 == 0){
-            endGame(2, this); //Computer (player 2) wins
-        }
-        //If there are no computer bases, then end the game
-        else if (bases2 == 0){
-            endGame(1, this); //User (player 1) wins
-        }
+        });
     }
     
     //Ends the game
@@ -532,21 +380,57 @@ public class ArtOfWar extends JFrame
         endStatus.setFont(new Font("Arial", Font.PLAIN, 50));        
         endDialog.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         endDialog.setVisible(true); //Show the dialog box
+        currGame.frameTimer.stop(); //Stop drawing generations
         currGame.dispose(); //Dispose of the game's JFrame or main window
     }
     
-    //Makes the "pause" effect between generations
-    public static void sleep(int duration) {
-        try {
-            Thread.sleep(duration);
-        } 
-        catch (Exception e) {}
-    }
-    
     //The main method which instantiates the game and calls all of the other methods
-    @SuppressWarnings("empty-statement")
-    public static void main(String args[]) throws IOException{
-        ArtOfWar currGame = new ArtOfWar(); //Instantiate the class
+    public static void main(String args[]) throws IOException, InterruptedException{
+        //Run the game without a window if requested e.g. "--headless 1000000"
+        if (args.length > 0 && args[0].equals("--headless")){
+            HeadlessRunner.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        //Play many games without a window if requested e.g. "--batch --games=1000"
+        if (args.length > 0 && args[0].equals("--batch")){
+            BatchRunner.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
+        //Read the size of the grid if given e.g. "--size=80x60"
+        int size[] = {defaultCellsX, defaultCellsY};
+        String recordFile = null; //File the game is recorded to e.g. "--record=game.aowr" (if wanted)
+        int aiBudget = 0; //Milliseconds the computer thinks about each move e.g. "--ai=100" (0 plays at random)
+        boolean printTimings = false; //Whether the time spent in each phase is printed when the game ends
+        RuleSet rules = RuleSet.STANDARD; //Rules the game is played by e.g. "--rules=rules.properties"
+        for (String arg : args){
+            if (arg.startsWith("--size=")){
+                size = HeadlessRunner.parseSize(arg.substring("--size=".length()));
+            }
+            else if (arg.startsWith("--record=")){
+                recordFile = arg.substring("--record=".length());
+            }
+            else if (arg.startsWith("--ai=")){
+                aiBudget = Integer.parseInt(arg.substring("--ai=".length()));
+            }
+            else if (arg.equals("--timings")){
+                printTimings = true;
+            }
+            else if (arg.startsWith("--rules=")){
+                rules = RuleSet.load(java.nio.file.Paths.get(arg.substring("--rules=".length())));
+            }
+            //Show a recorded game instead of playing one e.g. "--replay=game.aowr"
+            else if (arg.startsWith("--replay=")){
+                replayGame(java.nio.file.Paths.get(arg.substring("--replay=".length())));
+                return;
+            }
+        }
+        
+        final ArtOfWar currGame = new ArtOfWar(size[0], size[1]); //Instantiate the class
+        currGame.engine.setRules(rules);
+        if (aiBudget > 0){
+            currGame.ai = new MonteCarloAI(aiBudget);
+        }
         //Set JFrame attributes
         currGame.setTitle("The Art of War");
         currGame.setSize(width, height);
@@ -554,7 +438,7 @@ public class ArtOfWar extends JFrame
         currGame.setBackground(Color.black);
         
         //Show the starting dialog asking the user to select a cell as their base
-        JDialog startDialog = new javax.swing.JDialog();
+        final JDialog startDialog = new javax.swing.JDialog();
         //JLabel used to contain the message text
         JLabel startStatus = new JLabel("Please select a cell as your base (do not select the outer border).");
         //Set JDialog and JLabel attributes
@@ -567,30 +451,141 @@ public class ArtOfWar extends JFrame
         startDialog.setVisible(true); //Show the dialog box to the user
         
         currGame.initializeGame(); //Start the music and place any first generation cells, if wanted
-        currGame.updateScreen(); //Update screen to reflect any first generation cells placed onto the grid
+        //Update screen to reflect any first generation cells placed onto the grid
+        currGame.snapshots.publish(currGame.engine);
+        
+        //React to the game starting and ending on the event dispatch thread
+        currGame.lifecycle.addListener(new GameLifecycle.Listener() {
+            @Override
+            public void phaseChanged(GameLifecycle.Phase phase){
+                final int winner = currGame.engine.getWinner();
+                if (phase == GameLifecycle.Phase.RUNNING){
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run(){
+                            startDialog.dispose(); //Delete the entry dialog
+                        }
+                    });
+                }
+                else if (phase == GameLifecycle.Phase.ENDED && winner != 0){
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run(){
+                            currGame.updateScreen(); //Show the last generation, then the ending dialog
+                            endGame(winner, currGame);
+                        }
+                    });
+                }
+            }
+        });
         
-        //Wait for the user to click somewhere in the grid to plant their base
-        while (!currGame.readyToStart());
+        //Wait for the user to click somewhere in the grid to plant their base (the thread sleeps until a click)
+        while (currGame.lifecycle.getPhase() == GameLifecycle.Phase.AWAITING_BASE){
+            currGame.lifecycle.takeMove().run();
+            currGame.snapshots.publish(currGame.engine);
+        }
         
-        startDialog.dispose(); //Delete the entry dialog
+        //Record every generation from the placement of the bases onwards, if wanted
+        GameRecorder recorder = null;
+        if (recordFile != null){
+            recorder = new GameRecorder(java.nio.file.Paths.get(recordFile), currGame.numCellsX, currGame.numCellsY);
+            recorder.record(currGame.engine);
+        }
         
-        //Loop for the desired number of generations
-        for (generationNum = 1; generationNum <= ArtOfWar.numGenerations; generationNum++) {
-            drawGenerationNumLabel(); //Update the generation number
-            
-            //Sleep for animation effect
-            ArtOfWar.sleep(1000/framesPerSecond.getValue());
+        //Looks for the grid repeating itself, which can only change if the user makes a move
+        CycleDetector cycles = new CycleDetector();
+        cycles.observe(currGame.engine.getHash(), currGame.engine.getGeneration());
+        
+        //Loop for the desired number of generations (the screen is drawn separately on the event dispatch thread)
+        try {
+            while (currGame.lifecycle.getPhase() == GameLifecycle.Phase.RUNNING
+                    && currGame.engine.getGeneration() < ArtOfWar.numGenerations) {
+                //Sleep for animation effect (the slider sets the number of generations per second)
+                currGame.waitForNextFrame();
+                
+                //Make the moves the user made since the last generation (which may end a stalemate)
+                long start = System.nanoTime();
+                if (currGame.runPendingMoves()){
+                    if (cycles.getPeriod() > 0){
+                        currGame.showStalemate(0);
+                    }
+                    cycles.reset();
+                }
+                currGame.timings.record(FrameTimings.Phase.MOVES, System.nanoTime() - start);
+                //Calculate and plant the state values of the next generation (the engine measures both)
+                currGame.engine.step();
+                if (recorder != null){
+                    start = System.nanoTime();
+                    recorder.record(currGame.engine);
+                    currGame.timings.record(FrameTimings.Phase.RECORD, System.nanoTime() - start);
+                }
+                
+                //If there are no bases left for either player, then end the game
+                if (currGame.engine.getWinner() != 0){
+                    currGame.snapshots.publish(currGame.engine);
+                    break;
+                }
+                
+                //Tell the user once the grid starts repeating itself
+                if (cycles.getPeriod() == 0
+                        && cycles.observe(currGame.engine.getHash(), currGame.engine.getGeneration()) > 0){
+                    currGame.showStalemate(cycles.getPeriod());
+                }
+                
+                //Hand the generation to the screen if it drew the last one (otherwise this generation is skipped)
+                if (currGame.snapshots.wantsSnapshot()){
+                    start = System.nanoTime();
+                    currGame.snapshots.publish(currGame.engine);
+                    currGame.timings.record(FrameTimings.Phase.PUBLISH, System.nanoTime() - start);
+                }
+            }
+        } finally {
+            if (recorder != null){
+                recorder.close();
+            }
+        }
+        currGame.lifecycle.moveTo(GameLifecycle.Phase.ENDED);
+        if (printTimings){
+            currGame.timings.printReport(System.out);
+        }
+    }
+    
+    //Shows a game recorded with "--record" in the window, at the speed chosen with the slider
+    public static void replayGame(java.nio.file.Path file) throws IOException{
+        try (GameReplay replay = new GameReplay(file)){
+            final ArtOfWar currGame = new ArtOfWar(replay.getWidth(), replay.getHeight());
+            currGame.setTitle("The Art of War (replay)");
+            currGame.setSize(width, height);
+            currGame.setDefaultCloseOperation(EXIT_ON_CLOSE);
+            currGame.setBackground(Color.black);
+            playSound();
+            currGame.lifecycle.moveTo(GameLifecycle.Phase.RUNNING);
             
-            //Calculate the state values of the next generation
-            currGame.computeNextGeneration();
-            //Plant the next generation (replace the states array with the statesNext array)
-            currGame.plantNextGeneration();
-            //Update the screen to show the user
-            currGame.updateScreen();
+            while (replay.step()){
+                currGame.waitForNextFrame();
+                //Clicks do nothing in a replay
+                while (currGame.lifecycle.pollMove() != null){
+                }
+                if (replay.getWinner() != 0){
+                    currGame.snapshots.publish(replay);
+                    break;
+                }
+                if (currGame.snapshots.wantsSnapshot()){
+                    currGame.snapshots.publish(replay);
+                }
+            }
             
-            //If the game has ended, stop animating more generations
-            if (gameEnded){
-                break;
+            //Show the last generation, then the ending dialog if the recorded game was won
+            currGame.lifecycle.moveTo(GameLifecycle.Phase.ENDED);
+            final int winner = replay.getWinner();
+            if (winner != 0){
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run(){
+                        currGame.updateScreen();
+                        endGame(winner, currGame);
+                    }
+                });
             }
         }
     }
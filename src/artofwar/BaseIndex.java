@@ -0,0 +1,220 @@
+/*
+ * Keeps track of where the base cells of both players are, so GameEngine can tell whether a
+ * base is near a cell without scanning the area around it. The grid is split into buckets of
+ * bucketSize x bucketSize cells, each holding the base cells inside it, so a query only looks at
+ * the few base cells in the buckets that overlap the area. Bases are only ever placed by the
+ * players and killed by the rules (never born), so the index changes rarely.
+ * The index can also list every cell far enough from all bases, for choosing among the legal
+ * spots directly instead of trying random spots until one is legal.
+ */
+package artofwar;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class BaseIndex
+{
+    static private final int bucketShift = 4; //Buckets are 2^bucketShift cells wide and high
+    static private final int bucketSize = 1 << bucketShift;
+
+    private final int numCellsX; //Width of grid
+    private final int numCellsY; //Height of grid
+    private final int numBucketsX; //Number of buckets across the grid
+    private final int numBucketsY; //Number of buckets down the grid
+
+    //Indexes (y*numCellsX + x) of the base cells in each bucket, for the player's bases [0] and the computer's [1]
+    private final int buckets[][][];
+    private final int bucketSizes[][]; //Number of base cells in each bucket
+    private final int numBases[] = new int[2]; //Number of base cells of each player
+    //Buckets with a base cell near them: a bucket is marked by the current listing if reached[bucket] == listing
+    private final int reached[];
+    private int listing = 0; //Number of the current listing (see listCellsAwayFrom)
+
+    public BaseIndex(int numCellsX, int numCellsY)
+    {
+        this.numCellsX = numCellsX;
+        this.numCellsY = numCellsY;
+        numBucketsX = (numCellsX + bucketSize - 1) >> bucketShift;
+        numBucketsY = (numCellsY + bucketSize - 1) >> bucketShift;
+        buckets = new int[2][numBucketsX * numBucketsY][];
+        bucketSizes = new int[2][numBucketsX * numBucketsY];
+        reached = new int[numBucketsX * numBucketsY];
+    }
+
+    //Returns 0 for the player's bases, 1 for the computer's, or -1 if the state is not a base
+    static private int baseType(int state){
+        return state == GameEngine.PLAYER_BASE ? 0 : state == GameEngine.COMPUTER_BASE ? 1 : -1;
+    }
+
+    private int bucketOf(int i){
+        return ((i / numCellsX) >> bucketShift) * numBucketsX + ((i % numCellsX) >> bucketShift);
+    }
+
+    //Updates the index for the cell at index i changing from the old state to the new one
+    public void cellChanged(int i, int oldState, int newState){
+        if (oldState == newState){
+            return;
+        }
+        if (baseType(oldState) >= 0){
+            remove(i, baseType(oldState));
+        }
+        if (baseType(newState) >= 0){
+            add(i, baseType(newState));
+        }
+    }
+
+    private void add(int i, int type){
+        int bucket = bucketOf(i);
+        int cells[] = buckets[type][bucket];
+        int size = bucketSizes[type][bucket];
+        if (cells == null || size == cells.length){
+            cells = java.util.Arrays.copyOf(cells == null ? new int[0] : cells, Math.max(4, size * 2));
+            buckets[type][bucket] = cells;
+        }
+        cells[size] = i;
+        bucketSizes[type][bucket]++;
+        numBases[type]++;
+    }
+
+    private void remove(int i, int type){
+        int bucket = bucketOf(i);
+        int cells[] = buckets[type][bucket];
+        int size = bucketSizes[type][bucket];
+        for (int k = 0; k < size; k++){
+            if (cells[k] == i){
+                //Move the last cell of the bucket into the gap
+                cells[k] = cells[size - 1];
+                bucketSizes[type][bucket]--;
+                numBases[type]--;
+                return;
+            }
+        }
+    }
+
+    //Number of base cells of both players
+    public int getNumBases(){
+        return numBases[0] + numBases[1];
+    }
+
+    //Forgets every base cell
+    public void clear(){
+        for (int type = 0; type < 2; type++){
+            java.util.Arrays.fill(bucketSizes[type], 0);
+        }
+        numBases[0] = 0;
+        numBases[1] = 0;
+    }
+
+    //Removes the base cells that are no longer bases in states (after the rules killed some of them)
+    public void removeDeadBases(int states[]){
+        for (int type = 0; type < 2; type++){
+            int state = type == 0 ? GameEngine.PLAYER_BASE : GameEngine.COMPUTER_BASE;
+            for (int bucket = 0; bucket < bucketSizes[type].length; bucket++){
+                int cells[] = buckets[type][bucket];
+                for (int k = bucketSizes[type][bucket] - 1; k >= 0; k--){
+                    if (states[cells[k]] != state){
+                        remove(cells[k], type);
+                    }
+                }
+            }
+        }
+    }
+
+    //Counts the base cells of the desired state (PLAYER_BASE or COMPUTER_BASE) at most distance cells away
+    //from (x, y) horizontally and vertically, the same area as GameEngine.countBaseCell
+    public int count(int x, int y, int state, int distance){
+        int type = baseType(state);
+        if (numBases[type] == 0){
+            return 0;
+        }
+        int startCol = Math.max(x - distance, 0);
+        int endCol = Math.min(x + distance, numCellsX - 1);
+        int startRow = Math.max(y - distance, 0);
+        int endRow = Math.min(y + distance, numCellsY - 1);
+        if (startCol > endCol || startRow > endRow){
+            return 0;
+        }
+
+        int count = 0;
+        for (int by = startRow >> bucketShift; by <= endRow >> bucketShift; by++){
+            for (int bx = startCol >> bucketShift; bx <= endCol >> bucketShift; bx++){
+                int bucket = by * numBucketsX + bx;
+                int cells[] = buckets[type][bucket];
+                for (int k = 0; k < bucketSizes[type][bucket]; k++){
+                    int cellX = cells[k] % numCellsX;
+                    int cellY = cells[k] / numCellsX;
+                    if (cellX >= startCol && cellX <= endCol && cellY >= startRow && cellY <= endRow){
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    //Lists the cells from (minX, minY) to (maxX, maxY) (inclusive) that have no base cell of the desired
+    //states at most distance cells away horizontally and vertically, as indexes (y*numCellsX + x) in row order
+    //The buckets within reach of a base cell are marked first: every cell of the other buckets is legal,
+    //so only the cells of the marked buckets are looked at one by one
+    public int[] listCellsAwayFrom(int distance, boolean playerBases, boolean computerBases,
+            int minX, int minY, int maxX, int maxY){
+        minX = Math.max(minX, 0);
+        minY = Math.max(minY, 0);
+        maxX = Math.min(maxX, numCellsX - 1);
+        maxY = Math.min(maxY, numCellsY - 1);
+        if (minX > maxX || minY > maxY){
+            return new int[0];
+        }
+
+        //Mark the buckets holding a cell within reach of a base cell
+        listing++;
+        if (listing == 0){
+            java.util.Arrays.fill(reached, 0);
+            listing = 1;
+        }
+        for (int type = 0; type < 2; type++){
+            if ((type == 0 && !playerBases) || (type == 1 && !computerBases)){
+                continue;
+            }
+            for (int bucket = 0; bucket < bucketSizes[type].length; bucket++){
+                for (int k = 0; k < bucketSizes[type][bucket]; k++){
+                    int x = buckets[type][bucket][k] % numCellsX;
+                    int y = buckets[type][bucket][k] / numCellsX;
+                    int startCol = Math.max(x - distance, 0) >> bucketShift;
+                    int endCol = Math.min(x + distance, numCellsX - 1) >> bucketShift;
+                    int startRow = Math.max(y - distance, 0) >> bucketShift;
+                    int endRow = Math.min(y + distance, numCellsY - 1) >> bucketShift;
+                    for (int by = startRow; by <= endRow; by++){
+                        for (int bx = startCol; bx <= endCol; bx++){
+                            reached[by * numBucketsX + bx] = listing;
+                        }
+                    }
+                }
+            }
+        }
+
+        //Take every cell of the buckets no base cell reaches, and check the cells of the others
+        int legal[] = new int[Math.min((maxX - minX + 1) * (maxY - minY + 1), 1 << 10)];
+        int numFound = 0;
+        for (int y = minY; y <= maxY; y++){
+            for (int x = minX; x <= maxX; ){
+                //The cells of the row in the same bucket
+                int end = Math.min(maxX, x | (bucketSize - 1));
+                //Only the cells of a bucket a base cell reaches have to be checked
+                boolean checked = reached[(y >> bucketShift) * numBucketsX + (x >> bucketShift)] == listing;
+                if (numFound + end - x + 1 > legal.length){
+                    legal = java.util.Arrays.copyOf(legal, Math.max(legal.length * 2, numFound + bucketSize));
+                }
+                for (; x <= end; x++){
+                    if (checked && ((playerBases && count(x, y, GameEngine.PLAYER_BASE, distance) > 0)
+                            || (computerBases && count(x, y, GameEngine.COMPUTER_BASE, distance) > 0))){
+                        continue;
+                    }
+                    legal[numFound++] = y * numCellsX + x;
+                }
+            }
+        }
+        return java.util.Arrays.copyOf(legal, numFound);
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Plays many games without a window, in parallel, to compare rules and computer players.
+ * Game i uses the seed (seed + i), so any game can be played again on its own. Each
+ * worker thread takes the next game number when it finishes a game and reuses its own
+ * grid, so the memory used does not depend on the number of games. The result of every
+ * game is written to the CSV output as soon as the game ends (in the order they end).
+ *
+ * Usage: java -cp ArtOfWar.jar artofwar.BatchRunner [options]
+ * Options:
+ *   --games=N                number of games to play (default: 100)
+ *   --threads=N              number of games played at once (default: number of cores)
+ *   --size=WxH               width and height of the grid in cells (default: 50x50)
+ *   --generations=N          generation limit of each game (default: 50000)
+ *   --seed=S                 seed of the first game (default: 1)
+ *   --out=FILE               CSV file the results are written to (default: standard output)
+ *   --block-every=N          the player places a block at a random legal spot every N generations (default: never)
+ *   --script=FILE            moves of the player, one per line: "base x y" (center of the base) or
+ *                            "block generation x y" (center of a block), instead of random ones
+ *   --ai=MS                  the computer spends MS milliseconds choosing each move (default: random moves)
+ *   --cycle-window=N         stop a game as a draw once the grid repeats within N generations
+ *   --rules=FILE             play by the rules read from FILE (see RuleSet) instead of the rules of the game
+ * The computer answers each block of the player with a block of its own, as in the interactive game.
+ */
+package artofwar;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class BatchRunner
+{
+    //Results of a whole batch, counted while the games are played
+    static private class Totals
+    {
+        int playerWins, computerWins, draws;
+        int skipped; //Games with no room for the computer's base
+        long generations;
+    }
+
+    private final int numGames;
+    private final int numCellsX;
+    private final int numCellsY;
+    private final int numGenerations; //Generation limit of each game
+    private final long seed; //Seed of the first game
+    private final int blockEvery; //Generations between the player's random blocks (0 for none)
+    private final int script[][]; //Moves of the player {generation, x, y}, with generation -1 for the base (or null)
+    private final int aiBudget; //Milliseconds the computer spends on each move (0 for random moves)
+    private final int cycleWindow; //Generations searched for a repeating grid (0 to play until the end)
+    private RuleSet rules = RuleSet.STANDARD; //Rules every game is played by
+
+    private final AtomicInteger nextGame = new AtomicInteger(); //Number of the next game to be played
+    private final Totals totals = new Totals();
+
+    public BatchRunner(int numGames, int numCellsX, int numCellsY, int numGenerations, long seed,
+            int blockEvery, int script[][], int aiBudget, int cycleWindow)
+    {
+        this.numGames = numGames;
+        this.numCellsX = numCellsX;
+        this.numCellsY = numCellsY;
+        this.numGenerations = numGenerations;
+        this.seed = seed;
+        this.blockEvery = blockEvery;
+        this.script = script;
+        this.aiBudget = aiBudget;
+        this.cycleWindow = cycleWindow;
+    }
+
+    public void setRules(RuleSet rules){
+        this.rules = rules;
+    }
+
+    public static void main(String args[]) throws IOException{
+        int numGames = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int size[] = {50, 50};
+        int numGenerations = 50000;
+        long seed = 1;
+        String outFile = null;
+        int blockEvery = 0;
+        int script[][] = null;
+        int aiBudget = 0;
+        int cycleWindow = 0;
+        RuleSet rules = RuleSet.STANDARD;
+        for (String arg : args){
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--games=")){
+                numGames = Integer.parseInt(value);
+            }
+            else if (arg.startsWith("--threads=")){
+                threads = Integer.parseInt(value);
+            }
+            else if (arg.startsWith("--size=")){
+                size = HeadlessRunner.parseSize(value);
+            }
+            else if (arg.startsWith("--generations=")){
+                numGenerations = Integer.parseInt(value);
+            }
+            else if (arg.startsWith("--seed=")){
+                seed = Long.parseLong(value);
+            }
+            else if (arg.startsWith("--out=")){
+                outFile = value;
+            }
+            else if (arg.startsWith("--block-every=")){
+                blockEvery = Integer.parseInt(value);
+            }
+            else if (arg.startsWith("--script=")){
+                script = readScript(value);
+            }
+            else if (arg.startsWith("--ai=")){
+                aiBudget = Integer.parseInt(value);
+            }
+            else if (arg.startsWith("--cycle-window=")){
+                cycleWindow = Integer.parseInt(value);
+            }
+            else if (arg.startsWith("--rules=")){
+                rules = RuleSet.load(Paths.get(value));
+            }
+            else{
+                System.err.println("Unknown option: " + arg);
+                return;
+            }
+        }
+
+        BatchRunner batch = new BatchRunner(numGames, size[0], size[1], numGenerations, seed, blockEvery,
+                script, aiBudget, cycleWindow);
+        batch.setRules(rules);
+        long start = System.nanoTime();
+        try (PrintWriter out = outFile == null ? new PrintWriter(System.out) : new PrintWriter(outFile)){
+            batch.run(threads, out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        //Summary of the batch (on standard error, so it does not mix with the results if they go to standard output)
+        Totals totals = batch.totals;
+        System.err.println("Games: " + numGames + " (player " + totals.playerWins + ", computer "
+                + totals.computerWins + ", no winner " + totals.draws + ", skipped " + totals.skipped + ")");
+        System.err.printf("Time: %.3f s (%.1f games per second, %.0f generations per second)%n", seconds,
+                numGames / Math.max(seconds, 1e-9), totals.generations / Math.max(seconds, 1e-9));
+    }
+
+    //Plays every game using the desired number of threads, writing a line of CSV for each game
+    public void run(int threads, final PrintWriter out){
+        out.println("game,seed,winner,generations,playerCells,computerCells,playerBases,computerBases,cycle,millis");
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int w = 0; w < threads; w++){
+            workers.add(new Callable<Void>() {
+                @Override
+                public Void call(){
+                    playGames(out);
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> worker : pool.invokeAll(workers)){
+                worker.get();
+            }
+        } catch (InterruptedException | ExecutionException e){
+            throw new IllegalStateException("A game failed", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    //Plays games until every game has been taken (called by each worker thread)
+    private void playGames(PrintWriter out){
+        GameEngine engine = new GameEngine(numCellsX, numCellsY);
+        engine.setRules(rules);
+        MonteCarloAI ai = aiBudget > 0 ? new MonteCarloAI(aiBudget, 1) : null;
+        CycleDetector cycles = cycleWindow > 0 ? new CycleDetector(cycleWindow) : null;
+        try {
+            int game;
+            while ((game = nextGame.getAndIncrement()) < numGames){
+                long start = System.nanoTime();
+                if (!playGame(engine, new Random(seed + game), ai, cycles)){
+                    System.err.println("Game " + game + " skipped: no room for the computer's base");
+                    synchronized (totals){
+                        totals.skipped++;
+                    }
+                    continue;
+                }
+                long millis = (System.nanoTime() - start) / 1000000;
+
+                int period = cycles == null ? 0 : cycles.getPeriod();
+                String line = game + "," + (seed + game) + "," + engine.getWinner() + "," + engine.getGeneration() + ","
+                        + engine.getPopulation(GameEngine.PLAYER) + "," + engine.getPopulation(GameEngine.COMPUTER) + ","
+                        + engine.getPopulation(GameEngine.PLAYER_BASE) + ","
+                        + engine.getPopulation(GameEngine.COMPUTER_BASE) + "," + period + "," + millis;
+                synchronized (totals){
+                    out.println(line);
+                    if (engine.getWinner() == 1){
+                        totals.playerWins++;
+                    }
+                    else if (engine.getWinner() == 2){
+                        totals.computerWins++;
+                    }
+                    else{
+                        totals.draws++;
+                    }
+                    totals.generations += engine.getGeneration();
+                }
+            }
+        } finally {
+            if (ai != null){
+                ai.shutdown();
+            }
+        }
+    }
+
+    //Plays a single game on the engine (which is cleared first)
+    //Returns false if the computer's base could not be placed (then the game is not played)
+    private boolean playGame(GameEngine engine, Random rand, MonteCarloAI ai, CycleDetector cycles){
+        engine.makeEveryoneDead();
+        engine.restart();
+
+        //Place the player's base (from the script, or at a random legal spot), then the computer's base
+        int base[] = null;
+        if (script != null){
+            for (int move[] : script){
+                if (move[0] < 0){
+                    base = new int[] {move[1], move[2]};
+                }
+            }
+        }
+        if (base == null || engine.plantBase(base[0], base[1], GameEngine.PLAYER) != 0){
+            engine.plantBase(1 + rand.nextInt(numCellsX - 2), 1 + rand.nextInt(numCellsY - 2), GameEngine.PLAYER);
+        }
+        int spot[] = ai == null ? null : ai.chooseBase(engine, rand);
+        if (spot != null){
+            engine.plantBase(spot[0], spot[1], GameEngine.COMPUTER);
+        }
+        else if (!engine.plantComputerBase(rand)){
+            return false;
+        }
+
+        if (cycles != null){
+            cycles.reset();
+            cycles.observe(engine.getHash(), engine.getGeneration());
+        }
+        int nextMove = 0; //Next move of the script
+        while (engine.getGeneration() < numGenerations){
+            //Make the player's moves for this generation, each answered by the computer
+            int generation = engine.getGeneration();
+            boolean moved = false;
+            if (script != null){
+                while (nextMove < script.length && script[nextMove][0] <= generation){
+                    if (script[nextMove][0] == generation){
+                        moved |= playBlock(engine, script[nextMove][1], script[nextMove][2], rand, ai);
+                    }
+                    nextMove++;
+                }
+            }
+            else if (blockEvery > 0 && generation > 0 && generation % blockEvery == 0){
+                int spots[] = engine.listBlockSpots();
+                if (spots.length > 0){
+                    int center = spots[rand.nextInt(spots.length)];
+                    moved = playBlock(engine, center % numCellsX, center / numCellsX, rand, ai);
+                }
+            }
+            if (moved && cycles != null){
+                cycles.reset();
+            }
+
+            if (!engine.step()){
+                break;
+            }
+            if (cycles != null && cycles.observe(engine.getHash(), engine.getGeneration()) > 0){
+                break;
+            }
+        }
+        return true;
+    }
+
+    //Plants the player's block centered on (x, y) if it is a legal move and the computer's answer,
+    //returns false if the move was not legal
+    static private boolean playBlock(GameEngine engine, int x, int y, Random rand, MonteCarloAI ai){
+        if (!engine.canPlantBlock(x, y)){
+            return false;
+        }
+        engine.plantBlock(x - 1, y - 1, 3, 3, GameEngine.PLAYER);
+        if (ai != null){
+            int spot[] = ai.chooseBlock(engine, rand);
+            engine.plantBlock(spot[0], spot[1], 3, 3, GameEngine.COMPUTER);
+        }
+        else{
+            engine.plantComputerBlock(rand);
+        }
+        return true;
+    }
+
+    //Reads the player's moves: "base x y" or "block generation x y" on each line (# starts a comment)
+    //Returns {generation, x, y} for every move in the order of the generations (generation -1 for the base)
+    static int[][] readScript(String fileName) throws IOException{
+        List<int[]> moves = new ArrayList<>();
+        try (Scanner s = new Scanner(new FileReader(fileName))){
+            int line = 0;
+            while (s.hasNextLine()){
+                line++;
+                String text = s.nextLine().trim();
+                if (text.isEmpty() || text.startsWith("#")){
+                    continue;
+                }
+                String words[] = text.split("\\s+");
+                try {
+                    if (words[0].equals("base") && words.length == 3){
+                        moves.add(new int[] {-1, Integer.parseInt(words[1]), Integer.parseInt(words[2])});
+                    }
+                    else if (words[0].equals("block") && words.length == 4){
+                        moves.add(new int[] {Integer.parseInt(words[1]), Integer.parseInt(words[2]),
+                            Integer.parseInt(words[3])});
+                    }
+                    else{
+                        throw new IOException(fileName + ":" + line + ": expected \"base x y\" or \"block generation x y\"");
+                    }
+                } catch (NumberFormatException e){
+                    throw new IOException(fileName + ":" + line + ": " + e.getMessage());
+                }
+            }
+        }
+        //Sort the moves by generation (the base comes first)
+        java.util.Collections.sort(moves, new java.util.Comparator<int[]>() {
+            @Override
+            public int compare(int a[], int b[]){
+                return Integer.compare(a[0], b[0]);
+            }
+        });
+        return moves.toArray(new int[moves.size()][]);
+    }
+}
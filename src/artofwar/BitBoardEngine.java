@@ -0,0 +1,421 @@
+/*
+ * Bitboard backend for The Art of War. Instead of one int per cell, every cell state is
+ * stored as one bit in its own bit plane (player, computer, player base, computer base),
+ * packed 64 cells to a long. The neighbour counts of 64 cells are then computed at once
+ * with bitwise adders, giving the same generations as GameEngine.computeNextGeneration.
+ */
+package artofwar;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class BitBoardEngine implements Simulation
+{
+    private final int numCellsX; //Width of grid
+    private final int numCellsY; //Height of grid
+    private final int wordsPerRow; //Number of longs used to store one row of a bit plane
+    private final long lastWordMask; //Masks out the unused bits at the end of each row
+
+    //Bit planes of the current generation (bit x%64 of word y*wordsPerRow + x/64 is cell (x, y))
+    private long player[], computer[], playerBase[], computerBase[];
+    //Bit planes used to compute the next generation (swapped with the current ones after each step)
+    private long playerNext[], computerNext[], playerBaseNext[], computerBaseNext[];
+
+    //Horizontal (3 cell wide) sums for the rows above, at and below the row being computed
+    //Each row has 8 planes of sums, each in its own array: the 2 bit player and computer sums (low bits,
+    //then high bits), followed by "at least one" and "at least two" bits for the player and computer bases
+    private long sums[][][];
+
+    //Bands of rows computed in parallel (null when the generations are computed on the calling thread)
+    private RowBands bands;
+    //Row sums used by each band
+    private long bandSums[][][][];
+    //Computes a band of rows for the RowBands
+    private final RowBands.Rows bandRows = new RowBands.Rows() {
+        @Override
+        public long computeRows(int band, int startRow, int endRow){
+            return BitBoardEngine.this.computeRows(startRow, endRow, bandSums[band]);
+        }
+    };
+
+    private int generation = 0; //Number of generations computed so far
+    private int winner = 0; //0 while the game is running, otherwise the winning player (1 or 2)
+
+    /*
+     * Creates a bitboard with a grid of the desired size where every cell is dead
+     */
+    public BitBoardEngine(int numCellsX, int numCellsY)
+    {
+        this.numCellsX = numCellsX;
+        this.numCellsY = numCellsY;
+        wordsPerRow = (numCellsX + 63) / 64;
+        lastWordMask = (numCellsX % 64 == 0) ? -1L : (1L << (numCellsX % 64)) - 1;
+
+        int size = wordsPerRow * numCellsY;
+        player = new long[size];
+        computer = new long[size];
+        playerBase = new long[size];
+        computerBase = new long[size];
+        playerNext = new long[size];
+        computerNext = new long[size];
+        playerBaseNext = new long[size];
+        computerBaseNext = new long[size];
+
+        sums = new long[3][8][wordsPerRow];
+    }
+
+    /*
+     * Creates a bitboard holding the same cells as the desired simulation
+     */
+    public BitBoardEngine(Simulation source)
+    {
+        this(source.getWidth(), source.getHeight());
+        for (int y = 0; y < numCellsY; y++){
+            for (int x = 0; x < numCellsX; x++){
+                setState(x, y, source.getState(x, y));
+            }
+        }
+    }
+
+    @Override
+    public int getWidth(){
+        return numCellsX;
+    }
+
+    @Override
+    public int getHeight(){
+        return numCellsY;
+    }
+
+    @Override
+    public int getGeneration(){
+        return generation;
+    }
+
+    @Override
+    public int getWinner(){
+        return winner;
+    }
+
+    @Override
+    public int getState(int x, int y){
+        int word = y * wordsPerRow + (x >> 6);
+        long bit = 1L << x;
+        if ((player[word] & bit) != 0){
+            return GameEngine.PLAYER;
+        }
+        else if ((computer[word] & bit) != 0){
+            return GameEngine.COMPUTER;
+        }
+        else if ((playerBase[word] & bit) != 0){
+            return GameEngine.PLAYER_BASE;
+        }
+        else if ((computerBase[word] & bit) != 0){
+            return GameEngine.COMPUTER_BASE;
+        }
+        return GameEngine.DEAD;
+    }
+
+    @Override
+    public void copyStates(int dest[]){
+        for (int y = 0; y < numCellsY; y++){
+            for (int x = 0; x < numCellsX; x++){
+                dest[y * numCellsX + x] = getState(x, y);
+            }
+        }
+    }
+
+    public void setState(int x, int y, int state){
+        int word = y * wordsPerRow + (x >> 6);
+        long bit = 1L << x;
+        //Clear the cell from every plane, then set it in the plane of the desired state
+        player[word] &= ~bit;
+        computer[word] &= ~bit;
+        playerBase[word] &= ~bit;
+        computerBase[word] &= ~bit;
+        if (state == GameEngine.PLAYER){
+            player[word] |= bit;
+        }
+        else if (state == GameEngine.COMPUTER){
+            computer[word] |= bit;
+        }
+        else if (state == GameEngine.PLAYER_BASE){
+            playerBase[word] |= bit;
+        }
+        else if (state == GameEngine.COMPUTER_BASE){
+            computerBase[word] |= bit;
+        }
+    }
+
+    //Sets the number of threads used to compute each generation (1 computes them on the calling thread)
+    //The generations are identical no matter how many threads are used
+    public void setParallelism(int parallelism){
+        if (bands != null){
+            bands.shutdown();
+            bands = null;
+        }
+        if (parallelism > 1){
+            bands = new RowBands(parallelism, numCellsY);
+            bandSums = new long[bands.getNumBands()][3][8][wordsPerRow];
+        }
+    }
+
+    public int getParallelism(){
+        return bands == null ? 1 : bands.getParallelism();
+    }
+
+    //Computes the horizontal (3 cell wide) sums of the desired row into sums (all zeros outside of the grid)
+    private void computeRowSums(int y, long sums[][]){
+        if (y < 0 || y >= numCellsY){
+            for (long plane[] : sums){
+                java.util.Arrays.fill(plane, 0);
+            }
+            return;
+        }
+        int rowStart = y * wordsPerRow;
+        //2 bit sums of the player and computer cells
+        addRow(player, rowStart, sums[0], sums[1], true);
+        addRow(computer, rowStart, sums[2], sums[3], true);
+        //At least one and at least two player and computer base cells
+        addRow(playerBase, rowStart, sums[4], sums[5], false);
+        addRow(computerBase, rowStart, sums[6], sums[7], false);
+    }
+
+    //Adds up each cell of a row of a plane with its west (x-1) and east (x+1) neighbours: low gets the low bit
+    //of the sum (or whether it is at least one if exact is false), and high whether it is at least two
+    //The words in the middle of the row are computed by a loop without branches, which the JIT can
+    //compile to vector instructions, while the first and last words (with a neighbour outside the row) are done apart
+    private void addRow(long plane[], int rowStart, long low[], long high[], boolean exact){
+        int last = wordsPerRow - 1;
+        if (exact){
+            for (int k = 1; k < last; k++){
+                long c = plane[rowStart + k];
+                long w = (c << 1) | (plane[rowStart + k - 1] >>> 63);
+                long e = (c >>> 1) | (plane[rowStart + k + 1] << 63);
+                low[k] = w ^ c ^ e;
+                high[k] = (w & c) | (w & e) | (c & e);
+            }
+        }
+        else{
+            for (int k = 1; k < last; k++){
+                long c = plane[rowStart + k];
+                long w = (c << 1) | (plane[rowStart + k - 1] >>> 63);
+                long e = (c >>> 1) | (plane[rowStart + k + 1] << 63);
+                low[k] = w | c | e;
+                high[k] = (w & c) | (w & e) | (c & e);
+            }
+        }
+        addWord(plane, rowStart, 0, low, high, exact);
+        if (last > 0){
+            addWord(plane, rowStart, last, low, high, exact);
+        }
+    }
+
+    //Same as addRow for the single word k (which may be the first or last word of the row)
+    private void addWord(long plane[], int rowStart, int k, long low[], long high[], boolean exact){
+        long c = plane[rowStart + k];
+        long w = c << 1;
+        if (k > 0){
+            w |= plane[rowStart + k - 1] >>> 63;
+        }
+        long e = c >>> 1;
+        if (k < wordsPerRow - 1){
+            e |= plane[rowStart + k + 1] << 63;
+        }
+        low[k] = exact ? w ^ c ^ e : w | c | e;
+        high[k] = (w & c) | (w & e) | (c & e);
+    }
+
+    //Applies the rules of The Art of War to every 64 cell word of the grid at once, writing the
+    //next generation into the "Next" planes. Sets the winner if either player has no bases left.
+    //The rows are split into bands computed in parallel if the parallelism is more than 1.
+    public void computeNextGeneration() {
+        //Keeps track of how many base cells there are
+        long bases;
+        if (bands == null){
+            bases = computeRows(0, numCellsY, sums);
+        }
+        else{
+            bases = bands.run(bandRows, numCellsY);
+        }
+        int bases1 = (int) (bases >>> 32);
+        int bases2 = (int) bases;
+
+        //If there are no user bases, then the computer (player 2) wins
+        if (bases1 == 0){
+            winner = 2;
+        }
+        //If there are no computer bases, then the user (player 1) wins
+        else if (bases2 == 0){
+            winner = 1;
+        }
+    }
+
+    //Computes the rows startRow (inclusive) to endRow (exclusive) of the "Next" planes using the
+    //3 rows of sums in sums, and returns the base cells found in those rows as ((long) bases1 << 32) + bases2
+    private long computeRows(int startRow, int endRow, long sums[][][]) {
+        //Keeps track of how many base cells there are
+        int bases1 = 0;
+        int bases2 = 0;
+
+        long sumsAbove[][] = sums[0];
+        long sumsRow[][] = sums[1];
+        long sumsBelow[][] = sums[2];
+        computeRowSums(startRow - 1, sumsAbove);
+        computeRowSums(startRow, sumsRow);
+        for (int y = startRow; y < endRow; y++){
+            computeRowSums(y + 1, sumsBelow);
+            int rowStart = y * wordsPerRow;
+            computeWords(rowStart, sumsAbove, sumsRow, sumsBelow);
+
+            //Clear the cells past the end of the row, and count the base cells
+            int last = rowStart + wordsPerRow - 1;
+            playerNext[last] &= lastWordMask;
+            computerNext[last] &= lastWordMask;
+            for (int word = rowStart; word <= last; word++){
+                bases1 += Long.bitCount(playerBase[word]);
+                bases2 += Long.bitCount(computerBase[word]);
+            }
+
+            //Slide the row sums down by one row (reusing the oldest arrays)
+            long temp[][] = sumsAbove;
+            sumsAbove = sumsRow;
+            sumsRow = sumsBelow;
+            sumsBelow = temp;
+        }
+        return ((long) bases1 << 32) + bases2;
+    }
+
+    //Computes every word of the row starting at rowStart in the "Next" planes from the horizontal sums of
+    //the rows above, at and below it (the cells past the end of the row may be set, and must be cleared)
+    //Every word is computed the same way without branches, reading each plane of sums from its own array
+    private void computeWords(int rowStart, long sumsAbove[][], long sumsRow[][], long sumsBelow[][]){
+        long abovePlayer0[] = sumsAbove[0], abovePlayer1[] = sumsAbove[1];
+        long aboveComputer0[] = sumsAbove[2], aboveComputer1[] = sumsAbove[3];
+        long abovePlayerBase1[] = sumsAbove[4], abovePlayerBase2[] = sumsAbove[5];
+        long aboveComputerBase1[] = sumsAbove[6], aboveComputerBase2[] = sumsAbove[7];
+        long rowPlayer0[] = sumsRow[0], rowPlayer1[] = sumsRow[1];
+        long rowComputer0[] = sumsRow[2], rowComputer1[] = sumsRow[3];
+        long rowPlayerBase1[] = sumsRow[4], rowPlayerBase2[] = sumsRow[5];
+        long rowComputerBase1[] = sumsRow[6], rowComputerBase2[] = sumsRow[7];
+        long belowPlayer0[] = sumsBelow[0], belowPlayer1[] = sumsBelow[1];
+        long belowComputer0[] = sumsBelow[2], belowComputer1[] = sumsBelow[3];
+        long belowPlayerBase1[] = sumsBelow[4], belowPlayerBase2[] = sumsBelow[5];
+        long belowComputerBase1[] = sumsBelow[6], belowComputerBase2[] = sumsBelow[7];
+        long player[] = this.player, computer[] = this.computer;
+        long playerBase[] = this.playerBase, computerBase[] = this.computerBase;
+        long playerNext[] = this.playerNext, computerNext[] = this.computerNext;
+        long playerBaseNext[] = this.playerBaseNext, computerBaseNext[] = this.computerBaseNext;
+        int numWords = wordsPerRow;
+
+        for (int k = 0; k < numWords; k++){
+            int word = rowStart + k;
+
+            //Sum of the 3x3 area (including the cell itself) for both armies, as 4 bit numbers
+            long a0, a1, a2, a3, b0, b1, b2, b3;
+            long s0, s1, s2, c, t;
+
+            //Player: add the row above to the current row (3 bit result), then the row below
+            s0 = abovePlayer0[k] ^ rowPlayer0[k];
+            c = abovePlayer0[k] & rowPlayer0[k];
+            t = abovePlayer1[k] ^ rowPlayer1[k];
+            s1 = t ^ c;
+            s2 = (abovePlayer1[k] & rowPlayer1[k]) | (c & t);
+            a0 = s0 ^ belowPlayer0[k];
+            c = s0 & belowPlayer0[k];
+            t = s1 ^ belowPlayer1[k];
+            a1 = t ^ c;
+            c = (s1 & belowPlayer1[k]) | (c & t);
+            a2 = s2 ^ c;
+            a3 = s2 & c;
+
+            //Computer: same as above
+            s0 = aboveComputer0[k] ^ rowComputer0[k];
+            c = aboveComputer0[k] & rowComputer0[k];
+            t = aboveComputer1[k] ^ rowComputer1[k];
+            s1 = t ^ c;
+            s2 = (aboveComputer1[k] & rowComputer1[k]) | (c & t);
+            b0 = s0 ^ belowComputer0[k];
+            c = s0 & belowComputer0[k];
+            t = s1 ^ belowComputer1[k];
+            b1 = t ^ c;
+            c = (s1 & belowComputer1[k]) | (c & t);
+            b2 = s2 ^ c;
+            b3 = s2 & c;
+
+            //Exactly one base cell of each type in the 3x3 area
+            long oneBase1 = (abovePlayerBase1[k] | rowPlayerBase1[k] | belowPlayerBase1[k])
+                    & ~(abovePlayerBase2[k] | rowPlayerBase2[k] | belowPlayerBase2[k]
+                    | (abovePlayerBase1[k] & rowPlayerBase1[k]) | (abovePlayerBase1[k] & belowPlayerBase1[k])
+                    | (rowPlayerBase1[k] & belowPlayerBase1[k]));
+            long oneBase2 = (aboveComputerBase1[k] | rowComputerBase1[k] | belowComputerBase1[k])
+                    & ~(aboveComputerBase2[k] | rowComputerBase2[k] | belowComputerBase2[k]
+                    | (aboveComputerBase1[k] & rowComputerBase1[k]) | (aboveComputerBase1[k] & belowComputerBase1[k])
+                    | (rowComputerBase1[k] & belowComputerBase1[k]));
+
+            //Predicates on the sums (the sum includes the cell itself, so a living cell has one more)
+            long noPlayer = ~(a0 | a1 | a2 | a3);
+            long noComputer = ~(b0 | b1 | b2 | b3);
+            long threePlayer = a0 & a1 & ~a2 & ~a3;
+            long threeComputer = b0 & b1 & ~b2 & ~b3;
+            long threeOrMorePlayer = a3 | a2 | (a1 & a0);
+            long threeOrMoreComputer = b3 | b2 | (b1 & b0);
+            //3 to 5 friendly neighbours (4 to 6 including the cell itself)
+            long comradesPlayer = ~a3 & a2 & ~(a1 & a0);
+            long comradesComputer = ~b3 & b2 & ~(b1 & b0);
+
+            long p = player[word];
+            long q = computer[word];
+            long pb = playerBase[word];
+            long qb = computerBase[word];
+            long dead = ~(p | q | pb | qb);
+
+            //A dead cell becomes a player cell with 3 player neighbours, or with exactly 1 player base and no enemies
+            long spawnPlayer = dead & (threePlayer | (oneBase1 & noComputer));
+            //Otherwise it becomes a computer cell with 3 computer neighbours, or with exactly 1 computer base and no enemies
+            long spawnComputer = dead & ~spawnPlayer & (threeComputer | (oneBase2 & noPlayer));
+
+            playerNext[word] = (p & comradesPlayer & ~threeOrMoreComputer) | spawnPlayer;
+            computerNext[word] = (q & comradesComputer & ~threeOrMorePlayer) | spawnComputer;
+            playerBaseNext[word] = pb & ~threeOrMoreComputer;
+            computerBaseNext[word] = qb & ~threeOrMorePlayer;
+        }
+    }
+
+    //Makes the next generation's bit planes the current ones
+    public void plantNextGeneration() {
+        long temp[] = player;
+        player = playerNext;
+        playerNext = temp;
+        temp = computer;
+        computer = computerNext;
+        computerNext = temp;
+        temp = playerBase;
+        playerBase = playerBaseNext;
+        playerBaseNext = temp;
+        temp = computerBase;
+        computerBase = computerBaseNext;
+        computerBaseNext = temp;
+    }
+
+    @Override
+    public boolean step(){
+        if (winner != 0){
+            return false;
+        }
+        computeNextGeneration();
+        plantNextGeneration();
+        generation++;
+        return true;
+    }
+
+    @Override
+    public int step(int numGenerations){
+        int computed = 0;
+        while (computed < numGenerations && step()){
+            computed++;
+        }
+        return computed;
+    }
+}
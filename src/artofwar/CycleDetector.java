@@ -0,0 +1,83 @@
+/*
+ * Finds games that have settled into a still life or an oscillator. The hash of the
+ * board is given after every generation, and the hashes of the last few generations
+ * (the window) are remembered. When a hash comes back, the board repeats itself with
+ * the period between the two generations: from then on nothing new can happen (in
+ * particular no base can be lost, so nobody can win) unless somebody makes a move.
+ * Two different boards could in theory share a 64 bit hash, but the chance is negligible.
+ */
+package artofwar;
+
+import java.util.HashMap;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class CycleDetector
+{
+    static public final int defaultWindow = 64; //Number of generations remembered if none is given
+
+    private final int window; //Number of generations remembered
+    private final long hashes[]; //Hashes of the last generations (generation g is at index g % window)
+    private final int generations[]; //Generation stored at each index (-1 if none)
+    private final HashMap<Long, Integer> lastSeen = new HashMap<>(); //Last generation each hash was seen at
+    private int period = 0; //Period of the cycle that was found (0 if none)
+    private int cycleStart = -1; //Generation at which the cycle was found
+
+    public CycleDetector(int window)
+    {
+        if (window < 1){
+            throw new IllegalArgumentException("Window must be at least 1 generation: " + window);
+        }
+        this.window = window;
+        hashes = new long[window];
+        generations = new int[window];
+        java.util.Arrays.fill(generations, -1);
+    }
+
+    public CycleDetector()
+    {
+        this(defaultWindow);
+    }
+
+    //Remembers the hash of the board at the desired generation, returns the period if the board repeats
+    //one it had within the window (otherwise 0)
+    public int observe(long hash, int generation){
+        //Forget the generation that falls out of the window
+        int slot = generation % window;
+        if (generations[slot] >= 0){
+            Integer seen = lastSeen.get(hashes[slot]);
+            if (seen != null && seen == generations[slot]){
+                lastSeen.remove(hashes[slot]);
+            }
+        }
+
+        Integer seen = lastSeen.put(hash, generation);
+        hashes[slot] = hash;
+        generations[slot] = generation;
+        if (seen != null && period == 0){
+            period = generation - seen;
+            cycleStart = generation;
+        }
+        return seen == null ? 0 : generation - seen;
+    }
+
+    //Returns the period of the first cycle found (0 if none was found)
+    public int getPeriod(){
+        return period;
+    }
+
+    //Returns the generation at which the first cycle was found (-1 if none was found)
+    public int getCycleStart(){
+        return cycleStart;
+    }
+
+    //Forgets every generation, e.g. after a move changed the board
+    public void reset(){
+        lastSeen.clear();
+        java.util.Arrays.fill(generations, -1);
+        period = 0;
+        cycleStart = -1;
+    }
+}
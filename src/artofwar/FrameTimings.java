@@ -0,0 +1,125 @@
+/*
+ * Measures how long each phase of a frame takes (making the user's moves, computing and
+ * planting a generation, recording it, handing it to the screen, drawing it and sleeping).
+ * For each phase it keeps a total, a maximum and a histogram of the most recent durations,
+ * so the HUD can show the achieved frames per second and where the time of a frame goes.
+ * Recording a duration costs a few array updates, so the game can always be measured.
+ */
+package artofwar;
+
+import java.io.PrintStream;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class FrameTimings
+{
+    //Phases of a frame, FRAME being the whole frame from the start of one to the start of the next
+    public enum Phase
+    {
+        MOVES, //Making the moves the user made since the last generation
+        COMPUTE, //GameEngine.computeNextGeneration
+        PLANT, //GameEngine.plantNextGeneration
+        RECORD, //Writing the generation to the recording
+        PUBLISH, //Copying the generation into a snapshot for the screen
+        DRAW, //Drawing the newest snapshot (on the event dispatch thread)
+        SLEEP, //Waiting for the next frame
+        FRAME
+    }
+
+    static public final int numBuckets = 32; //Bucket b of a histogram counts durations from 2^b to 2^(b+1) microseconds
+    static private final int historySize = 256; //Number of recent durations kept for each phase
+
+    private final int numPhases = Phase.values().length;
+    private final long counts[] = new long[numPhases]; //Number of durations recorded for each phase
+    private final long totalNanos[] = new long[numPhases];
+    private final long maxNanos[] = new long[numPhases];
+    private final long history[][] = new long[numPhases][historySize]; //Recent durations of each phase (a ring)
+    private final int histograms[][] = new int[numPhases][numBuckets]; //Histogram of the recent durations
+
+    //Adds the duration of a phase (the newest duration replaces the oldest in the histogram)
+    public synchronized void record(Phase phase, long nanos){
+        int p = phase.ordinal();
+        int slot = (int) (counts[p] % historySize);
+        if (counts[p] >= historySize){
+            histograms[p][bucket(history[p][slot])]--;
+        }
+        history[p][slot] = nanos;
+        histograms[p][bucket(nanos)]++;
+        counts[p]++;
+        totalNanos[p] += nanos;
+        maxNanos[p] = Math.max(maxNanos[p], nanos);
+    }
+
+    //Histogram bucket of a duration (durations under 2 microseconds go into the first bucket)
+    static private int bucket(long nanos){
+        long micros = nanos / 1000;
+        return micros <= 1 ? 0 : Math.min(numBuckets - 1, 63 - Long.numberOfLeadingZeros(micros));
+    }
+
+    public synchronized long getCount(Phase phase){
+        return counts[phase.ordinal()];
+    }
+
+    //Average duration of the phase over the whole game in milliseconds (0 if it never happened)
+    public synchronized double getAverageMillis(Phase phase){
+        int p = phase.ordinal();
+        return counts[p] == 0 ? 0 : totalNanos[p] / 1e6 / counts[p];
+    }
+
+    public synchronized double getMaxMillis(Phase phase){
+        return maxNanos[phase.ordinal()] / 1e6;
+    }
+
+    //Average duration of the recent durations of the phase in milliseconds (0 if it never happened)
+    public synchronized double getRecentMillis(Phase phase){
+        int p = phase.ordinal();
+        int n = (int) Math.min(counts[p], historySize);
+        long total = 0;
+        for (int i = 0; i < n; i++){
+            total += history[p][i];
+        }
+        return n == 0 ? 0 : total / 1e6 / n;
+    }
+
+    //Number of recent durations of the phase in each bucket
+    public synchronized int[] getHistogram(Phase phase){
+        return histograms[phase.ordinal()].clone();
+    }
+
+    //Upper bound of the desired fraction (e.g. 0.99) of the recent durations in milliseconds, to the
+    //nearest power of two microseconds (0 if it never happened)
+    public synchronized double getPercentileMillis(Phase phase, double fraction){
+        int p = phase.ordinal();
+        long n = Math.min(counts[p], historySize);
+        long seen = 0;
+        for (int b = 0; b < numBuckets; b++){
+            seen += histograms[p][b];
+            if (seen > 0 && seen >= fraction * n){
+                return (2L << b) / 1e3;
+            }
+        }
+        return 0;
+    }
+
+    //Frames per second achieved over the recent frames (0 before the first frame)
+    public double getFramesPerSecond(){
+        double frameMillis = getRecentMillis(Phase.FRAME);
+        return frameMillis == 0 ? 0 : 1000 / frameMillis;
+    }
+
+    //Prints the average, 50th and 99th percentile and maximum duration of each phase that happened
+    public void printReport(PrintStream out){
+        out.println("Phase      count      avg ms   p50 ms   p99 ms   max ms");
+        for (Phase phase : Phase.values()){
+            if (getCount(phase) > 0){
+                out.printf("%-8s %7d %10.3f %8.3f %8.3f %8.3f%n", phase, getCount(phase), getAverageMillis(phase),
+                        getPercentileMillis(phase, 0.5), getPercentileMillis(phase, 0.99), getMaxMillis(phase));
+            }
+        }
+        if (getCount(Phase.FRAME) > 0){
+            out.printf("Frames per second: %.1f%n", getFramesPerSecond());
+        }
+    }
+}
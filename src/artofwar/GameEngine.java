@@ -0,0 +1,703 @@
+/*
+ * Headless simulation engine for The Art of War. Holds the grid of cell states and
+ * applies the rules of the game without any dependency on AWT/Swing, so that
+ * generations can be stepped as fast as the CPU allows (e.g. on a server with no display).
+ */
+package artofwar;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class GameEngine implements Simulation
+{
+    //Possible states of a cell
+    static public final int DEAD = 0; //Empty/dead cell
+    static public final int PLAYER = 1; //Player 1 (human) normal cell
+    static public final int COMPUTER = 2; //Player 2 (computer) normal cell
+    static public final int PLAYER_BASE = 3; //Player 1 base cell
+    static public final int COMPUTER_BASE = 4; //Player 2 base cell
+
+    static private final int startOfGrid = 0; //Defines the start of the grid (starting coordinate)
+
+    private final int numCellsX; //Width of grid
+    private final int numCellsY; //Height of grid
+
+    //states[] keeps track of the current generation's cell states (see the constants above)
+    //Both arrays are stored row by row, so cell (x, y) is at index y*numCellsX + x
+    private int states[];
+    //Used to compute the states for the next generation (then it is swapped with the states array)
+    private int statesNext[];
+
+    //The neighbourhood counts of a cell are packed into one int, 4 bits per state (a 3x3 area holds at most 9):
+    //bits 0-3 player cells, 4-7 computer cells, 8-11 player base cells, 12-15 computer base cells
+    //(the packing the table of the RuleSet is indexed by)
+    static private final int countIncrement[] = {0, 1, 1 << 4, 1 << 8, 1 << 12};
+    //Packed counts of the column (rows y-1 to y+1) of every cell, padded by an empty column on each side
+    private int columnCounts[];
+
+    //Bands of rows computed in parallel (null when the generations are computed on the calling thread)
+    private RowBands bands;
+    //Column counts used by each band
+    private int bandColumnCounts[][];
+    //Changes of state counted by each band (see transitions)
+    private int bandTransitions[][];
+    //Changes of the board hash made by each band
+    private long bandHashChanges[];
+    //Computes a band of rows (or of tile rows when tracking the active tiles) for the RowBands
+    //The changes of state and of the hash are kept per band and merged afterwards, so nothing is returned
+    private final RowBands.Rows bandRows = new RowBands.Rows() {
+        @Override
+        public long computeRows(int band, int startRow, int endRow){
+            if (activeTracking){
+                bandHashChanges[band] = computeActiveTiles(startRow, endRow, bandColumnCounts[band],
+                        bandTransitions[band]);
+            }
+            else{
+                bandHashChanges[band] = computeArea(0, numCellsX, startRow, endRow, bandColumnCounts[band],
+                        bandTransitions[band]);
+            }
+            return 0;
+        }
+    };
+
+    //The grid is split into square tiles, and only the tiles where a cell changed in the last generation
+    //(plus the tiles next to them) are computed, since every other cell would stay the same
+    static private final int tileSize = 32; //Width and height of a tile in cells
+    private final int numTilesX; //Number of tiles across the grid
+    private final int numTilesY; //Number of tiles down the grid
+    private boolean activeTracking = false; //Whether only the active tiles are computed
+    private boolean tileActive[]; //Tiles that must be computed for the next generation
+    private boolean tileActiveNext[]; //Tiles that must be computed for the generation after that
+    private int numActiveTiles; //Number of tiles that were computed for the last generation
+
+    //Number of cells in each state, kept up to date whenever a cell changes (indexed by state)
+    private final long population[] = new long[numStates];
+    static private final int numStates = 5; //Number of possible states of a cell
+    //Number of cells that changed from each state to each other state in the last generation
+    //(a change from state a to state b is counted at index a*numStates + b)
+    private int transitions[] = new int[numStates * numStates];
+
+    //Zobrist-style hash of the board: the XOR of a random key for every cell that is not dead, which
+    //is updated as cells change, so that boards seen before can be found without comparing every cell
+    private long hash = 0;
+    private long hashChange = 0; //Change of the hash made by the generation being computed
+
+    //Positions of the base cells, so countBaseCell does not have to scan the area around a cell
+    private final BaseIndex bases;
+    //Number of random spots plantComputerBase tries before choosing among all of the legal spots
+    static private final int computerBaseTries = 64;
+
+    private int generation = 0; //Number of generations computed so far
+    private int winner = 0; //0 while the game is running, otherwise the winning player (1 or 2)
+    private FrameTimings timings; //Receives the time spent computing and planting each generation (or null)
+    private RuleSet rules = RuleSet.STANDARD; //Rules applied to every cell
+
+    /*
+     * Creates an engine with a grid of the desired size where every cell is dead
+     */
+    public GameEngine(int numCellsX, int numCellsY)
+    {
+        this.numCellsX = numCellsX;
+        this.numCellsY = numCellsY;
+        states = new int[numCellsX * numCellsY];
+        statesNext = new int[numCellsX * numCellsY];
+        columnCounts = new int[numCellsX + 2];
+        bases = new BaseIndex(numCellsX, numCellsY);
+
+        numTilesX = (numCellsX + tileSize - 1) / tileSize;
+        numTilesY = (numCellsY + tileSize - 1) / tileSize;
+
+        //Every cell starts off dead
+        population[DEAD] = (long) numCellsX * numCellsY;
+    }
+
+    @Override
+    public int getWidth(){
+        return numCellsX;
+    }
+
+    @Override
+    public int getHeight(){
+        return numCellsY;
+    }
+
+    //Returns the number of generations computed so far
+    @Override
+    public int getGeneration(){
+        return generation;
+    }
+
+    //Returns 0 while the game is running, otherwise the winning player (1 or 2)
+    @Override
+    public int getWinner(){
+        return winner;
+    }
+
+    @Override
+    public int getState(int x, int y){
+        return states[y * numCellsX + x];
+    }
+
+    //Copies the state of every cell into dest, row by row (cell (x, y) is at y*width + x)
+    @Override
+    public void copyStates(int dest[]){
+        System.arraycopy(states, 0, dest, 0, states.length);
+    }
+
+    public void setState(int x, int y, int state){
+        setCell(y * numCellsX + x, state);
+        markChanged(x, y, x, y);
+    }
+
+    //Sets the cell at the desired index of the states array, keeping the population and the hash up to date
+    private void setCell(int i, int state){
+        population[states[i]]--;
+        population[state]++;
+        hash ^= hashKey(i, states[i]) ^ hashKey(i, state);
+        bases.cellChanged(i, states[i], state);
+        states[i] = state;
+    }
+
+    //Returns the key of the cell at the desired index in the desired state (dead cells have no key,
+    //so an empty board hashes to 0). The keys are mixed from the index and state instead of being stored.
+    static private long hashKey(int i, int state){
+        if (state == DEAD){
+            return 0;
+        }
+        long z = ((long) i * numStates + state) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    //Returns the hash of the board, equal boards always have the same hash (see CycleDetector)
+    public long getHash(){
+        return hash;
+    }
+
+    //Returns the number of cells in the desired state
+    public long getPopulation(int state){
+        return population[state];
+    }
+
+    //Returns the statistics of the last generation that was computed
+    public GenerationStats getStats(){
+        return new GenerationStats(generation, population, transitions, numStates);
+    }
+
+    //Sets the number of threads used to compute each generation (1 computes them on the calling thread)
+    //The generations are identical no matter how many threads are used
+    public void setParallelism(int parallelism){
+        if (bands != null){
+            bands.shutdown();
+            bands = null;
+        }
+        if (parallelism > 1){
+            bands = new RowBands(parallelism, numCellsY);
+            bandColumnCounts = new int[bands.getNumBands()][numCellsX + 2];
+            bandTransitions = new int[bands.getNumBands()][numStates * numStates];
+            bandHashChanges = new long[bands.getNumBands()];
+        }
+    }
+
+    public int getParallelism(){
+        return bands == null ? 1 : bands.getParallelism();
+    }
+
+    //Sets whether only the tiles near cells that changed in the last generation are computed
+    //The generations are identical either way, but most of a mostly dead or stable grid is skipped
+    public void setActiveTracking(boolean enabled){
+        activeTracking = enabled;
+        if (enabled){
+            //Compute every tile for the first generation
+            tileActive = new boolean[numTilesX * numTilesY];
+            tileActiveNext = new boolean[numTilesX * numTilesY];
+            java.util.Arrays.fill(tileActive, true);
+        }
+    }
+
+    public boolean isActiveTracking(){
+        return activeTracking;
+    }
+
+    //Returns the number of tiles that were computed for the last generation (all of them when not tracking)
+    public int getNumActiveTiles(){
+        return activeTracking ? numActiveTiles : numTilesX * numTilesY;
+    }
+
+    public int getNumTiles(){
+        return numTilesX * numTilesY;
+    }
+
+    //Marks the tiles that must be computed after the cells from (startX, startY) to (endX, endY) (inclusive)
+    //were changed outside of a generation, which includes the tiles of their neighbours
+    private void markChanged(int startX, int startY, int endX, int endY){
+        if (!activeTracking){
+            return;
+        }
+        int startTileX = Math.max(startX - 1, 0) / tileSize;
+        int startTileY = Math.max(startY - 1, 0) / tileSize;
+        int endTileX = Math.min(endX + 1, numCellsX - 1) / tileSize;
+        int endTileY = Math.min(endY + 1, numCellsY - 1) / tileSize;
+        for (int ty = startTileY; ty <= endTileY; ty++){
+            for (int tx = startTileX; tx <= endTileX; tx++){
+                tileActive[ty * numTilesX + tx] = true;
+            }
+        }
+    }
+
+    /*
+     * Plants the player's or computer's base
+     */
+    public int plantBase(int centerX, int centerY, int state){
+        //Returns -1 if the position of the base is not allowed
+        if (centerX <= 0 || centerY <= 0 || centerX >= numCellsX-1 || centerY >= numCellsY-1){
+            return -1;
+        }
+
+        //Calculate the ending column and row of the base
+        int endCol = Math.min(centerX-1 + 3, numCellsX);
+        int endRow = Math.min(centerY-1 + 3, numCellsY);
+
+        //Iterate through the desired coordinates
+        for (int i = centerY-1; i < endRow; i++) {
+            for (int j = centerX-1; j < endCol; j++) {
+                if (((i == centerY+1 || i == centerY-1) && j != centerX) || ((j == centerX+1 || j == centerX-1) && i != centerY)){
+                    //Set the 4 corners of the center square to be the desired base (player or computer)
+                    if (state == PLAYER){
+                        setCell(i * numCellsX + j, PLAYER_BASE);
+                    }
+                    else{
+                        setCell(i * numCellsX + j, COMPUTER_BASE);
+                    }
+                }
+                else{
+                    //Otherwise, set the cell to be part of the desired army (player or computer)
+                    setCell(i * numCellsX + j, state);
+                }
+            }
+        }
+        markChanged(centerX-1, centerY-1, centerX+1, centerY+1);
+        //Returns 0 to indicate successful execution of the method
+        return 0;
+    }
+
+    //Plants the computer's base at a random spot that is at least 15 units away from the player's base
+    //Returns false if there is no such spot (then no base is planted)
+    public boolean plantComputerBase(Random rand){
+        //Create random x and y coordinates for the computer's base
+        int randX = 1 + rand.nextInt(numCellsX-3);
+        int randY = 1 + rand.nextInt(numCellsY-3);
+        //Ensure the computer's base is 15 units away from the player's base
+        for (int tries = 1; countBaseCell(randX, randY, PLAYER_BASE, 15) != 0; tries++){
+            //If the spots tried so far were all too close, choose among every legal spot instead
+            if (tries == computerBaseTries){
+                int spots[] = listComputerBaseSpots();
+                if (spots.length == 0){
+                    return false;
+                }
+                int spot = spots[rand.nextInt(spots.length)];
+                randX = spot % numCellsX;
+                randY = spot / numCellsX;
+                break;
+            }
+            //If the computer's base is too close to the player's base, select new x and y coordinates
+            randX = 1 + rand.nextInt(numCellsX-3);
+            randY = 1 + rand.nextInt(numCellsY-3);
+        }
+        //Plant the computer's base
+        plantBase(randX, randY, COMPUTER);
+        return true;
+    }
+
+    //Lists every legal center for the computer's base (in the area plantComputerBase chooses from, and at
+    //least 15 units away from the player's base), as indexes (y*numCellsX + x)
+    public int[] listComputerBaseSpots(){
+        return bases.listCellsAwayFrom(15, true, false, 1, 1, numCellsX - 3, numCellsY - 3);
+    }
+
+    //Lists every legal center for a block (at least 5 units away from any base, see canPlantBlock),
+    //as indexes (y*numCellsX + x)
+    public int[] listBlockSpots(){
+        return bases.listCellsAwayFrom(5, true, true, 0, 0, numCellsX - 1, numCellsY - 1);
+    }
+
+    //Returns true if a 3x3 block centered on the coordinates is 5 units away from any base (a legal move)
+    public boolean canPlantBlock(int x, int y){
+        return countBaseCell(x, y, COMPUTER_BASE, 5) == 0 && countBaseCell(x, y, PLAYER_BASE, 5) == 0;
+    }
+
+    //Plants the computer's 3x3 block at a random spot
+    public void plantComputerBlock(Random rand){
+        //Choose random coordinates for the computer's block
+        int randX = rand.nextInt(numCellsX-2);
+        int randY = rand.nextInt(numCellsY-2);
+        //Plant the computer's 3x3 block
+        plantBlock(randX, randY, 3, 3, COMPUTER);
+    }
+
+    //Reads cells from a file, written as "x-coord y-coord state" lines or run-length encoded (see PatternLoader)
+    public void plantFromFile(String fileName) throws IOException {
+        PatternLoader.load(Paths.get(fileName), this);
+    }
+
+    //Sets every cell at once, src holds the states row by row (cell (x, y) is at y*numCellsX + x)
+    public void setStates(int src[]){
+        System.arraycopy(src, 0, states, 0, states.length);
+        java.util.Arrays.fill(population, 0);
+        hash = 0;
+        bases.clear();
+        for (int i = 0; i < states.length; i++){
+            population[states[i]]++;
+            hash ^= hashKey(i, states[i]);
+            bases.cellChanged(i, DEAD, states[i]);
+        }
+        markChanged(0, 0, numCellsX - 1, numCellsY - 1);
+    }
+
+    //Plants a block (rectangle) with the desired attributes
+    public void plantBlock(int startX, int startY, int numColumns, int numRows, int state) {
+        //If the player has selected the left column or top row, offset the click to make it a legal move
+        if (startX < 0){
+            startX = 0;
+        }
+        if (startY < 0){
+            startY = 0;
+        }
+
+        //Find the ending columns and rows with the desired attributes
+        int endCol = Math.min(startX + numColumns, numCellsX);
+        int endRow = Math.min(startY + numRows, numCellsY);
+
+        //Set the specified cells to the desired state
+        for (int i = startY; i < endRow; i++) {
+            for (int j = startX; j < endCol; j++) {
+                setCell(i * numCellsX + j, state);
+            }
+        }
+        markChanged(startX, startY, endCol-1, endRow-1);
+    }
+
+    //Sets all cells to dead
+    public void makeEveryoneDead() {
+        java.util.Arrays.fill(states, DEAD);
+        java.util.Arrays.fill(population, 0);
+        population[DEAD] = states.length;
+        hash = 0;
+        bases.clear();
+        markChanged(0, 0, numCellsX-1, numCellsY-1);
+    }
+
+    //Returns a boolean indicating whether the core game is ready to be initialized (a player 1 base cell exists)
+    public boolean readyToStart(){
+        return population[PLAYER_BASE] > 0;
+    }
+
+    //Count how many base cells (or any desired state) are within the specified distance
+    //Base cells are counted from the index of their positions, other states by scanning the area
+    public int countBaseCell(int x, int y, int state, int distance){
+        if (state == PLAYER_BASE || state == COMPUTER_BASE){
+            return bases.count(x, y, state, distance);
+        }
+        //Calculate the rows/columns that must be traversed
+        int startCol = Math.max(x-distance, startOfGrid);
+        int endCol = Math.min(x+distance, numCellsX - 1);
+        int startRow = Math.max(y-distance, startOfGrid);
+        int endRow = Math.min(y+distance, numCellsY - 1);
+
+        int baseCount = 0; //Keeps track of how many of the desired cells are nearby
+        //Loop through the calculated rows/columns looking for specific states
+        for (int i = startRow; i <= endRow; i++){
+            for (int j = startCol; j <= endCol; j++){
+                if (states[i * numCellsX + j] == state){
+                    baseCount++; //Increment baseCount if a cell with the desired state is found
+                }
+            }
+        }
+        return baseCount;
+    }
+
+    //Checks if exactly 1 base cell is touching a specified cell
+    public boolean checkBaseCell(int x, int y, int state){
+        return countBaseCell(x, y, state, 1) == 1;
+    }
+
+    //Counts the amount of living neighbours beside the desired cell
+    public int countLivingNeighbors(int x, int y, int state) {
+        //Define the bounding area of the search (the row/columns directly surrounding the cell)
+        //Ensures that there is not a ArrayIndexOutOfBoundsException due to negative indices
+        int rowStart  = Math.max(y - 1, startOfGrid);
+        int rowFinish = Math.min(y + 1, numCellsY - 1);
+        int colStart  = Math.max(x - 1, startOfGrid);
+        int colFinish = Math.min(x + 1, numCellsX - 1);
+
+        //Initialize a count variable to store the amount of living neighbors
+        int count = 0;
+
+        //Loop through the desired rows
+        for (int curRow = rowStart; curRow <= rowFinish; curRow++) {
+            //Loop through the desired columns
+            for (int curCol = colStart; curCol <= colFinish; curCol++) {
+                //If the current neighbor found is alive AND it is not the cell itself (that we are checking)
+                if (states[curRow * numCellsX + curCol] == state && !(curRow == y && curCol == x)){
+                    //Increment the count of living neighbors
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    //Adds (or subtracts if sign is -1) the packed counts of the columns startX-1 to endX of a row to the
+    //column counts (columnCounts[0] holds column startX-1, columns outside of the grid are left empty)
+    private void addRowToColumnCounts(int y, int sign, int columnCounts[], int startX, int endX){
+        int cells[] = states;
+        int rowStart = y * numCellsX;
+        int offset = 1 - startX;
+        int colStart = Math.max(startX - 1, 0);
+        int colFinish = Math.min(endX, numCellsX - 1);
+        for (int x = colStart; x <= colFinish; x++){
+            columnCounts[x + offset] += sign * countIncrement[cells[rowStart + x]];
+        }
+    }
+
+    //Applies the rules of The Art of War to set the integer values of the statesNext[] array,
+    //based on the current values in the states[] array. Sets the winner if either player has no bases left.
+    //The rows are split into bands computed in parallel if the parallelism is more than 1.
+    public void computeNextGeneration() {
+        java.util.Arrays.fill(transitions, 0);
+        if (bands == null){
+            if (activeTracking){
+                hashChange = computeActiveTiles(0, numTilesY, columnCounts, transitions);
+            }
+            else{
+                hashChange = computeArea(0, numCellsX, 0, numCellsY, columnCounts, transitions);
+            }
+        }
+        else{
+            for (int band[] : bandTransitions){
+                java.util.Arrays.fill(band, 0);
+            }
+            bands.run(bandRows, activeTracking ? numTilesY : numCellsY);
+            //Add up the changes counted by each band
+            for (int band[] : bandTransitions){
+                for (int i = 0; i < transitions.length; i++){
+                    transitions[i] += band[i];
+                }
+            }
+            hashChange = 0;
+            for (long change : bandHashChanges){
+                hashChange ^= change;
+            }
+        }
+
+        //If there are no user bases, then the computer (player 2) wins
+        if (population[PLAYER_BASE] == 0){
+            winner = 2;
+        }
+        //If there are no computer bases, then the user (player 1) wins
+        else if (population[COMPUTER_BASE] == 0){
+            winner = 1;
+        }
+    }
+
+    //Computes the active tiles in the tile rows startTileRow (inclusive) to endTileRow (exclusive),
+    //returns the change of the board hash
+    private long computeActiveTiles(int startTileRow, int endTileRow, int columnCounts[], int transitions[]){
+        long change = 0;
+        for (int ty = startTileRow; ty < endTileRow; ty++){
+            for (int tx = 0; tx < numTilesX; tx++){
+                if (tileActive[ty * numTilesX + tx]){
+                    change ^= computeArea(tx * tileSize, Math.min((tx + 1) * tileSize, numCellsX),
+                            ty * tileSize, Math.min((ty + 1) * tileSize, numCellsY), columnCounts, transitions);
+                }
+            }
+        }
+        return change;
+    }
+
+    //Computes the area from (startX, startRow) (inclusive) to (endX, endRow) (exclusive) of the statesNext[]
+    //array, counting the cells that change state in transitions, and returns the change of the board hash
+    //All of the neighbourhood counts are built in one sweep: a running sum of the rows y-1 to y+1 is kept
+    //for every column, and a window of three of those column sums slides along the row.
+    private long computeArea(int startX, int endX, int startRow, int endRow, int columnCounts[], int transitions[]) {
+        long change = 0; //XOR of the old and new keys of every cell that changes
+        //Start with the rows startRow-1 and startRow in the column counts (row -1 is outside of the grid)
+        java.util.Arrays.fill(columnCounts, 0, endX - startX + 2, 0);
+        if (startRow - 1 >= 0){
+            addRowToColumnCounts(startRow - 1, 1, columnCounts, startX, endX);
+        }
+        addRowToColumnCounts(startRow, 1, columnCounts, startX, endX);
+
+        int cells[] = states;
+        int cellsNext[] = statesNext;
+        byte table[] = rules.getTable();
+
+        //Loop through all cells and update them in the statesNext array
+        for (int y = startRow; y < endRow; y++){
+            //Slide the column counts down so they cover the rows y-1 to y+1
+            if (y + 1 < numCellsY){
+                addRowToColumnCounts(y + 1, 1, columnCounts, startX, endX);
+            }
+            if (y > startRow && y - 2 >= 0){
+                addRowToColumnCounts(y - 2, -1, columnCounts, startX, endX);
+            }
+
+            int rowStart = y * numCellsX;
+            //Counts of the 3x3 area around (x, y), starting with the columns startX-1 and startX
+            int window = columnCounts[0] + columnCounts[1];
+            for (int x = startX; x < endX; x++){
+                int i = x - startX; //Index of column x-1 in columnCounts
+                //Add column x+1 to the window
+                window += columnCounts[i+2];
+                int state = cells[rowStart + x];
+
+                //Look up the next state in the table of the rules (no branches on the state or the counts)
+                int next = table[(state << RuleSet.stateShift) | window];
+
+                cellsNext[rowStart + x] = next;
+                //Count the change of state (for the population and statistics) and update the hash
+                if (next != state){
+                    transitions[state * numStates + next]++;
+                    change ^= hashKey(rowStart + x, state) ^ hashKey(rowStart + x, next);
+                }
+
+                //Remove column x-1 from the window
+                window -= columnCounts[i];
+            }
+        }
+        return change;
+    }
+
+    //Makes the next generation's array the current one by swapping the two arrays (nothing is copied)
+    public void plantNextGeneration() {
+        if (activeTracking){
+            markActiveTiles();
+        }
+        int temp[] = states;
+        states = statesNext;
+        statesNext = temp;
+        hash ^= hashChange;
+
+        //Apply the changes of state counted while computing the generation to the population
+        for (int from = 0; from < numStates; from++){
+            for (int to = 0; to < numStates; to++){
+                int count = transitions[from * numStates + to];
+                population[from] -= count;
+                population[to] += count;
+            }
+        }
+        //Forget the base cells that died (bases are never born, so no new ones can appear)
+        if (population[PLAYER_BASE] + population[COMPUTER_BASE] != bases.getNumBases()){
+            bases.removeDeadBases(states);
+        }
+    }
+
+    //Marks every tile where a cell changed (plus the tiles around it) as active for the next generation
+    //Only the active tiles were written to the statesNext array, but every other tile is the same in both arrays,
+    //since it did not change in the last generation (and any change from outside of a generation marks it active)
+    private void markActiveTiles(){
+        numActiveTiles = 0;
+        for (int ty = 0; ty < numTilesY; ty++){
+            for (int tx = 0; tx < numTilesX; tx++){
+                int tile = ty * numTilesX + tx;
+                if (!tileActive[tile]){
+                    continue;
+                }
+                numActiveTiles++;
+                tileActive[tile] = false;
+
+                //Check whether any of the cells of the tile changed
+                boolean changed = false;
+                int startX = tx * tileSize;
+                int endX = Math.min(startX + tileSize, numCellsX);
+                int endY = Math.min((ty + 1) * tileSize, numCellsY);
+                for (int y = ty * tileSize; y < endY && !changed; y++){
+                    int rowStart = y * numCellsX;
+                    for (int x = startX; x < endX; x++){
+                        if (states[rowStart + x] != statesNext[rowStart + x]){
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+
+                //The tile and its neighbours must be computed for the next generation
+                if (changed){
+                    for (int ny = Math.max(ty - 1, 0); ny <= Math.min(ty + 1, numTilesY - 1); ny++){
+                        for (int nx = Math.max(tx - 1, 0); nx <= Math.min(tx + 1, numTilesX - 1); nx++){
+                            tileActiveNext[ny * numTilesX + nx] = true;
+                        }
+                    }
+                }
+            }
+        }
+        boolean temp[] = tileActive;
+        tileActive = tileActiveNext;
+        tileActiveNext = temp;
+    }
+
+    //Computes and plants a single generation, returns false if the game had already ended
+    @Override
+    public boolean step(){
+        if (winner != 0){
+            return false;
+        }
+        if (timings == null){
+            computeNextGeneration();
+            plantNextGeneration();
+        }
+        else{
+            long start = System.nanoTime();
+            computeNextGeneration();
+            long computed = System.nanoTime();
+            plantNextGeneration();
+            timings.record(FrameTimings.Phase.COMPUTE, computed - start);
+            timings.record(FrameTimings.Phase.PLANT, System.nanoTime() - computed);
+        }
+        generation++;
+        return true;
+    }
+
+    //Measures the time spent computing and planting each generation from now on (null to stop measuring)
+    public void setTimings(FrameTimings timings){
+        this.timings = timings;
+    }
+
+    //Sets the rules applied from the next generation on
+    public void setRules(RuleSet rules){
+        this.rules = rules;
+    }
+
+    public RuleSet getRules(){
+        return rules;
+    }
+
+    //Starts the game over from the current cells: the generation goes back to 0 and the winner is forgotten
+    public void restart(){
+        generation = 0;
+        winner = 0;
+    }
+
+    //Moves the generation count forward without computing the generations, for a board that repeats
+    //itself every period generations (numGenerations must be a multiple of the period, see CycleDetector)
+    public void skipGenerations(int numGenerations){
+        generation += numGenerations;
+    }
+
+    //Computes up to the desired number of generations (stops early if the game ends)
+    //Returns the number of generations that were actually computed
+    @Override
+    public int step(int numGenerations){
+        int computed = 0;
+        while (computed < numGenerations && step()){
+            computed++;
+        }
+        return computed;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Keeps track of the phase of a game (waiting for the player's base, running or ended)
+ * and hands the user's moves from the event dispatch thread to the simulation thread.
+ * The simulation thread blocks while it waits for a move, so it uses no CPU while the
+ * welcome dialog is open, and it sees each move as soon as the move is made.
+ */
+package artofwar;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class GameLifecycle
+{
+    //Phases of a game, in the order they happen
+    public enum Phase
+    {
+        AWAITING_BASE, //Waiting for the player to place their base
+        RUNNING, //Generations are being computed
+        ENDED //One of the players lost all of their bases (or the game was stopped)
+    }
+
+    //Called whenever the game moves to another phase (on the thread that changed the phase)
+    public interface Listener
+    {
+        public void phaseChanged(Phase phase);
+    }
+
+    private volatile Phase phase = Phase.AWAITING_BASE; //Current phase of the game
+    private final LinkedBlockingQueue<Runnable> moves = new LinkedBlockingQueue<>(); //Moves not made yet
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public Phase getPhase(){
+        return phase;
+    }
+
+    public void addListener(Listener listener){
+        listeners.add(listener);
+    }
+
+    //Moves the game to the next phase (phases can only move forward), returns false if it was already there
+    public boolean moveTo(Phase next){
+        synchronized (this){
+            if (next.ordinal() <= phase.ordinal()){
+                return false;
+            }
+            phase = next;
+        }
+        for (Listener listener : listeners){
+            listener.phaseChanged(next);
+        }
+        return true;
+    }
+
+    //Adds a move to be made by the simulation thread (called when the user clicks)
+    public void postMove(Runnable move){
+        moves.add(move);
+    }
+
+    //Returns the next move, waiting until there is one
+    public Runnable takeMove() throws InterruptedException{
+        return moves.take();
+    }
+
+    //Returns the next move, or null if there is none
+    public Runnable pollMove(){
+        return moves.poll();
+    }
+}
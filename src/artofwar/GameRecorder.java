@@ -0,0 +1,193 @@
+/*
+ * Records a game to a file so it can be replayed later (see GameReplay) without computing
+ * it again. Most generations are stored as a delta: the cells that changed since the last
+ * recorded generation and their new states. Every keyframeInterval generations the whole
+ * grid is stored instead (a keyframe), so a replay can jump to any generation by starting
+ * from the keyframe before it. The records are gathered in a buffer and appended to the
+ * file through a FileChannel.
+ *
+ * File format (numbers are big-endian):
+ *   header:  int magic, int version, int width, int height, int keyframe interval
+ *   record:  byte kind, int generation, byte winner, int payload length, payload
+ *   keyframe payload: one byte per cell with its state, row by row
+ *   delta payload:    varint number of changes, then for every change (in increasing index order)
+ *                     varint gap from the index of the last change (minus one), byte new state
+ */
+package artofwar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class GameRecorder implements Closeable
+{
+    static final int magic = 0x414F5752; //"AOWR"
+    static final int version = 1;
+    static final int headerSize = 20; //Size of the file header in bytes
+    static final int recordHeaderSize = 10; //Size of the header of a record in bytes
+    static final byte keyframe = 1; //Kind of a record storing every cell
+    static final byte delta = 2; //Kind of a record storing the changed cells
+
+    static public final int defaultKeyframeInterval = 100; //Generations between keyframes if none is given
+    static public final int maxCells = Integer.MAX_VALUE - 8; //Most cells the int[] buffers (and a keyframe) can hold
+    static private final int bufferSize = 1 << 16; //Bytes gathered before they are written to the file
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+    private final int keyframeInterval; //A keyframe is written for every generation that is a multiple of this
+
+    private int recorded[]; //States of the last recorded generation
+    private int current[]; //States of the generation being recorded
+    private boolean recordedAny = false; //Whether a generation was recorded yet (the first is always a keyframe)
+    private long numBytes = 0; //Number of bytes written so far (including the ones still in the buffer)
+
+    //Creates a new recording (replacing the file if it exists) of a grid of the desired size
+    //Throws an IllegalArgumentException if the grid is too big to be recorded (see canRecord)
+    public GameRecorder(Path file, int numCellsX, int numCellsY, int keyframeInterval) throws IOException
+    {
+        if (keyframeInterval < 1){
+            throw new IllegalArgumentException("Keyframe interval must be at least 1: " + keyframeInterval);
+        }
+        if (!canRecord(numCellsX, numCellsY)){
+            throw new IllegalArgumentException("A grid of " + numCellsX + "x" + numCellsY
+                    + " cells is too big to be recorded (at most " + maxCells + " cells)");
+        }
+        this.keyframeInterval = keyframeInterval;
+        recorded = new int[numCellsX * numCellsY];
+        current = new int[numCellsX * numCellsY];
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        putInt(magic);
+        putInt(version);
+        putInt(numCellsX);
+        putInt(numCellsY);
+        putInt(keyframeInterval);
+    }
+
+    public GameRecorder(Path file, int numCellsX, int numCellsY) throws IOException
+    {
+        this(file, numCellsX, numCellsY, defaultKeyframeInterval);
+    }
+
+    //Returns true if a grid of the desired size can be recorded (every cell is kept in an int[] buffer)
+    static public boolean canRecord(int numCellsX, int numCellsY){
+        return numCellsX > 0 && numCellsY > 0 && (long) numCellsX * numCellsY <= maxCells;
+    }
+
+    //Appends the current generation of the simulation to the recording
+    public void record(Simulation simulation) throws IOException{
+        simulation.copyStates(current);
+        int generation = simulation.getGeneration();
+
+        //Find the size of the delta, so a keyframe can be written instead if it would be smaller
+        int numChanges = 0;
+        long deltaSize = 0;
+        int last = -1;
+        for (int i = 0; i < current.length; i++){
+            if (current[i] != recorded[i]){
+                numChanges++;
+                deltaSize += varintSize(i - last - 1) + 1;
+                last = i;
+            }
+        }
+        deltaSize += varintSize(numChanges);
+
+        if (!recordedAny || generation % keyframeInterval == 0 || deltaSize >= current.length){
+            putRecordHeader(keyframe, generation, simulation.getWinner(), current.length);
+            for (int i = 0; i < current.length; i++){
+                putByte(current[i]);
+            }
+        }
+        else{
+            putRecordHeader(delta, generation, simulation.getWinner(), (int) deltaSize);
+            putVarint(numChanges);
+            last = -1;
+            for (int i = 0; i < current.length; i++){
+                if (current[i] != recorded[i]){
+                    putVarint(i - last - 1);
+                    putByte(current[i]);
+                    last = i;
+                }
+            }
+        }
+
+        //The generation just recorded is the one the next delta is taken from
+        int temp[] = recorded;
+        recorded = current;
+        current = temp;
+        recordedAny = true;
+    }
+
+    //Returns the number of bytes in the recording so far
+    public long getNumBytes(){
+        return numBytes;
+    }
+
+    //Writes the records gathered in the buffer to the file
+    public void flush() throws IOException{
+        buffer.flip();
+        while (buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException{
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putRecordHeader(byte kind, int generation, int winner, int payloadSize) throws IOException{
+        putByte(kind);
+        putInt(generation);
+        putByte(winner);
+        putInt(payloadSize);
+    }
+
+    private void putByte(int value) throws IOException{
+        if (!buffer.hasRemaining()){
+            flush();
+        }
+        buffer.put((byte) value);
+        numBytes++;
+    }
+
+    private void putInt(int value) throws IOException{
+        if (buffer.remaining() < 4){
+            flush();
+        }
+        buffer.putInt(value);
+        numBytes += 4;
+    }
+
+    //Writes an unsigned number 7 bits at a time, lowest bits first (the top bit of a byte is set if more follow)
+    private void putVarint(int value) throws IOException{
+        while ((value & ~0x7F) != 0){
+            putByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        putByte(value);
+    }
+
+    //Returns the number of bytes putVarint() writes for the value
+    static private int varintSize(int value){
+        int size = 1;
+        while ((value & ~0x7F) != 0){
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+}
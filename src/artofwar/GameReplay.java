@@ -0,0 +1,283 @@
+/*
+ * Replays a game recorded by GameRecorder. The file is memory-mapped a window of
+ * windowSize bytes at a time (so recordings of long games on big grids are not limited by
+ * the size of a single mapping), and the records are decoded straight from the page cache
+ * without copying them. When the replay is opened,
+ * the record headers are read once to find the keyframes, after which any generation
+ * can be reached by decoding the keyframe before it and at most a keyframe interval of
+ * deltas. A replay is a Simulation whose steps move to the next recorded generation.
+ */
+package artofwar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class GameReplay implements Simulation, Closeable
+{
+    static private final long windowSize = 1 << 26; //Bytes of the recording mapped at once
+    static private final long windowAlignment = 1 << 12; //Windows start at a multiple of this
+
+    private final FileChannel channel;
+    private final long size; //Size of the recording in bytes
+    private MappedByteBuffer window; //The part of the recording being read
+    private long windowStart = 0; //Position of the first byte of the window in the recording
+    private final int numCellsX; //Width of grid
+    private final int numCellsY; //Height of grid
+    private final int keyframeInterval; //Generations between keyframes when the game was recorded
+
+    //Position and generation of every keyframe, in the order they were recorded
+    private long keyframePositions[] = new long[16];
+    private int keyframeGenerations[] = new int[16];
+    private int numKeyframes = 0;
+    private int numRecords = 0; //Number of complete records in the file
+    private long end; //Position after the last complete record (a record cut off by a crash is ignored)
+
+    private final int states[]; //States of the current generation, row by row
+    private long position; //Position of the record after the current generation
+    private int generation = -1; //Current generation (-1 before the first record is read)
+    private int winner = 0; //Winner recorded with the current generation
+
+    public GameReplay(Path file) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+        try {
+            if (size < GameRecorder.headerSize || getInt(0) != GameRecorder.magic){
+                throw new IOException("Not a recording of The Art of War: " + file);
+            }
+            if (getInt(4) != GameRecorder.version){
+                throw new IOException("Unsupported recording version " + getInt(4) + ": " + file);
+            }
+            numCellsX = getInt(8);
+            numCellsY = getInt(12);
+            keyframeInterval = getInt(16);
+            if (numCellsX < 1 || numCellsY < 1 || (long) numCellsX * numCellsY > GameRecorder.maxCells){
+                throw new IOException("Invalid grid size " + numCellsX + "x" + numCellsY + ": " + file);
+            }
+        }
+        catch (IOException e){
+            channel.close();
+            throw e;
+        }
+        states = new int[numCellsX * numCellsY];
+
+        //Find the keyframes by skipping from record header to record header
+        long pos = GameRecorder.headerSize;
+        while (pos + GameRecorder.recordHeaderSize <= size){
+            int payloadSize = getInt(pos + 6);
+            if (payloadSize < 0 || pos + GameRecorder.recordHeaderSize + payloadSize > size){
+                break;
+            }
+            if (getByte(pos) == GameRecorder.keyframe){
+                if (numKeyframes == keyframePositions.length){
+                    keyframePositions = Arrays.copyOf(keyframePositions, numKeyframes * 2);
+                    keyframeGenerations = Arrays.copyOf(keyframeGenerations, numKeyframes * 2);
+                }
+                keyframePositions[numKeyframes] = pos;
+                keyframeGenerations[numKeyframes] = getInt(pos + 1);
+                numKeyframes++;
+            }
+            numRecords++;
+            pos += GameRecorder.recordHeaderSize + payloadSize;
+        }
+        end = pos;
+        position = GameRecorder.headerSize;
+    }
+
+    @Override
+    public int getWidth(){
+        return numCellsX;
+    }
+
+    @Override
+    public int getHeight(){
+        return numCellsY;
+    }
+
+    @Override
+    public int getState(int x, int y){
+        return states[y * numCellsX + x];
+    }
+
+    @Override
+    public void copyStates(int dest[]){
+        System.arraycopy(states, 0, dest, 0, states.length);
+    }
+
+    @Override
+    public int getGeneration(){
+        return generation;
+    }
+
+    @Override
+    public int getWinner(){
+        return winner;
+    }
+
+    public int getKeyframeInterval(){
+        return keyframeInterval;
+    }
+
+    //Returns the number of generations in the recording
+    public int getNumRecords(){
+        return numRecords;
+    }
+
+    //Returns the last generation in the recording (-1 if it is empty)
+    public int getLastGeneration(){
+        if (numKeyframes == 0){
+            return -1;
+        }
+        //Every record after the last keyframe has to be read to find it
+        long pos = keyframePositions[numKeyframes - 1];
+        int last = -1;
+        while (pos < end){
+            last = getInt(pos + 1);
+            pos += GameRecorder.recordHeaderSize + getInt(pos + 6);
+        }
+        return last;
+    }
+
+    //Moves to the next recorded generation, returns false if there are no more
+    @Override
+    public boolean step(){
+        if (position >= end){
+            return false;
+        }
+        readRecord();
+        return true;
+    }
+
+    //Moves up to the desired number of recorded generations forward, returns the number of generations moved
+    @Override
+    public int step(int numGenerations){
+        int moved = 0;
+        while (moved < numGenerations && step()){
+            moved++;
+        }
+        return moved;
+    }
+
+    //Moves to the last recorded generation at or before the desired one, returns false if the recording starts after it
+    public boolean seek(int target){
+        //Find the last keyframe at or before the target
+        int low = 0;
+        int high = numKeyframes - 1;
+        int found = -1;
+        while (low <= high){
+            int mid = (low + high) >>> 1;
+            if (keyframeGenerations[mid] <= target){
+                found = mid;
+                low = mid + 1;
+            }
+            else{
+                high = mid - 1;
+            }
+        }
+        if (found < 0){
+            return false;
+        }
+
+        //Start from the keyframe (or the current generation, if it is on the way), then apply the deltas after it
+        if (generation < keyframeGenerations[found] || generation > target){
+            position = keyframePositions[found];
+            readRecord();
+        }
+        while (position < end && getInt(position + 1) <= target){
+            readRecord();
+        }
+        return true;
+    }
+
+    //Reads the record at the current position into the states, and moves to the next record
+    private void readRecord(){
+        byte kind = getByte(position);
+        generation = getInt(position + 1);
+        winner = getByte(position + 5);
+        int payloadSize = getInt(position + 6);
+        long pos = position + GameRecorder.recordHeaderSize;
+        position = pos + payloadSize;
+
+        if (kind == GameRecorder.keyframe){
+            //Copy the cells a window at a time
+            int i = 0;
+            while (i < states.length){
+                mapWindow(pos + i);
+                int offset = (int) (pos + i - windowStart);
+                int count = Math.min(states.length - i, window.limit() - offset);
+                for (int j = 0; j < count; j++){
+                    states[i + j] = window.get(offset + j);
+                }
+                i += count;
+            }
+            return;
+        }
+
+        //Apply the changes of a delta
+        int numChanges = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = getByte(pos++);
+            numChanges |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        int index = -1;
+        for (int c = 0; c < numChanges; c++){
+            int gap = 0;
+            shift = 0;
+            do {
+                b = getByte(pos++);
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            index += gap + 1;
+            states[index] = getByte(pos++);
+        }
+    }
+
+    //Maps the window holding the byte at the desired position of the recording, unless it is already mapped
+    private void mapWindow(long pos){
+        if (window != null && pos >= windowStart && pos < windowStart + window.limit()){
+            return;
+        }
+        windowStart = pos - pos % windowAlignment;
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+        }
+        catch (IOException e){
+            throw new IllegalStateException("Could not map the recording", e);
+        }
+    }
+
+    //Returns the byte at the desired position of the recording
+    private byte getByte(long pos){
+        mapWindow(pos);
+        return window.get((int) (pos - windowStart));
+    }
+
+    //Returns the (big-endian) int at the desired position of the recording, which may cross into the next window
+    private int getInt(long pos){
+        mapWindow(pos);
+        int offset = (int) (pos - windowStart);
+        if (offset + 4 <= window.limit()){
+            return window.getInt(offset);
+        }
+        return (getByte(pos) & 0xFF) << 24 | (getByte(pos + 1) & 0xFF) << 16 | (getByte(pos + 2) & 0xFF) << 8
+                | (getByte(pos + 3) & 0xFF);
+    }
+
+    @Override
+    public void close() throws IOException{
+        channel.close();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Statistics of one generation of a game: how many cells are in each state, and how
+ * many cells were born, died or lost their base status while the generation was
+ * computed. The counts are kept up to date by the engine as the cells change, so
+ * taking the statistics never has to scan the grid.
+ */
+package artofwar;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class GenerationStats
+{
+    private final int generation; //Generation the statistics belong to
+    private final long population[]; //Number of cells in each state (indexed by state)
+    private final int births[] = new int[3]; //Normal cells born for each player (index 1 is the user, 2 the computer)
+    private final int deaths[] = new int[3]; //Normal cells that died for each player
+    private final int basesLost[] = new int[3]; //Base cells that died for each player
+
+    //transitions holds the number of cells that changed from state a to state b at index a*numStates + b
+    GenerationStats(int generation, long population[], int transitions[], int numStates)
+    {
+        this.generation = generation;
+        this.population = population.clone();
+        for (int from = 0; from < numStates; from++){
+            births[1] += transitions[from * numStates + GameEngine.PLAYER];
+            births[2] += transitions[from * numStates + GameEngine.COMPUTER];
+        }
+        for (int to = 0; to < numStates; to++){
+            deaths[1] += transitions[GameEngine.PLAYER * numStates + to];
+            deaths[2] += transitions[GameEngine.COMPUTER * numStates + to];
+            basesLost[1] += transitions[GameEngine.PLAYER_BASE * numStates + to];
+            basesLost[2] += transitions[GameEngine.COMPUTER_BASE * numStates + to];
+        }
+    }
+
+    public int getGeneration(){
+        return generation;
+    }
+
+    //Returns the number of cells in the desired state
+    public long getPopulation(int state){
+        return population[state];
+    }
+
+    //Returns the number of normal cells born in the last generation for the desired player (1 or 2)
+    public int getBirths(int player){
+        return births[player];
+    }
+
+    //Returns the number of normal cells that died in the last generation for the desired player (1 or 2)
+    public int getDeaths(int player){
+        return deaths[player];
+    }
+
+    //Returns the number of base cells lost in the last generation by the desired player (1 or 2)
+    public int getBasesLost(int player){
+        return basesLost[player];
+    }
+
+    //Column names of the rows returned by toCsvRow()
+    static public String csvHeader(){
+        return "generation,dead,player,computer,playerBases,computerBases,"
+                + "playerBirths,playerDeaths,computerBirths,computerDeaths,playerBasesLost,computerBasesLost";
+    }
+
+    //Returns the statistics as one row of comma separated values
+    public String toCsvRow(){
+        return generation + "," + population[GameEngine.DEAD] + "," + population[GameEngine.PLAYER] + ","
+                + population[GameEngine.COMPUTER] + "," + population[GameEngine.PLAYER_BASE] + ","
+                + population[GameEngine.COMPUTER_BASE] + "," + births[1] + "," + deaths[1] + ","
+                + births[2] + "," + deaths[2] + "," + basesLost[1] + "," + basesLost[2];
+    }
+}
@@ -0,0 +1,517 @@
+/*
+ * Component that draws the grid of cells. Only the part of the grid that fits in the
+ * component is drawn, into an off-screen image the size of the component, so the cost of
+ * drawing depends on the size of the screen rather than the size of the grid. The grid can
+ * be zoomed with the mouse wheel (or + and -), moved by dragging it, and fitted back into
+ * the component with Home.
+ * Cells of at least minSpriteSize pixels are drawn with their sprite, smaller cells with a
+ * flat colour. The tile drawn for each state is scaled once whenever the zoom changes, so
+ * drawing a cell is a copy of its pixels. Zoomed out further, each pixel stands for a block
+ * of cells and is coloured by how many cells of each state the block holds (sampling at most
+ * maxSamples x maxSamples cells of larger blocks).
+ * Each update only copies the visible cells (or the sampled cells of the visible blocks) out of
+ * the states it is given, and only redraws the cells and blocks whose copied states changed
+ * since the last update. After a zoom or move the cells are asked for again from the cell
+ * source, if one is set (otherwise they are drawn by the next update).
+ * All of the methods must be called on the event dispatch thread.
+ */
+package artofwar;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
+import javax.swing.KeyStroke;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class GridView extends JComponent
+{
+    static private final Color gridLineColor = Color.DARK_GRAY; //Colour of the lines between cells
+    //Colours of the states when zoomed out, for sprites that could not be loaded (indexed by state)
+    static private final Color defaultColors[] = {Color.YELLOW, new Color(0x3060e0), new Color(0xd03030),
+        new Color(0x20c0f0), new Color(0xf08020)};
+    static private final int minSpriteSize = 8; //Smallest cell size in pixels that the sprites are drawn at
+    static private final int maxCellSize = 64; //Largest cell size in pixels when zooming in
+    static private final int maxBlockSize = 1024; //Largest number of cells across a pixel when zooming out
+    static private final int maxSamples = 4; //Largest number of cells sampled across each block when zoomed out
+
+    private final int numCellsX; //Width of grid
+    private final int numCellsY; //Height of grid
+
+    private final Image sprites[]; //Image drawn for each state (indexed by state)
+    private final Color deadColor; //Colour drawn behind dead cells
+    private final boolean gridLines; //Whether lines are drawn between cells
+    private int flatColors[]; //Colour of each state when the cells are too small for sprites (RGB)
+
+    //The visible part of the grid is drawn as blocks of blockSize x blockSize cells (single cells when blockSize
+    //is 1), from the first visible block (firstBlockX, firstBlockY). Each block is drawn from samplesPerBlock x
+    //samplesPerBlock of its cells: sampleXs holds the columns of the samples of every visible block in turn
+    //and sampleYs their rows (-1 for samples past the end of the grid)
+    private int firstBlockX, firstBlockY;
+    private int samplesPerBlock = 1;
+    private int sampleXs[] = new int[0], sampleYs[] = new int[0];
+    private int samples[] = new int[0]; //Newest states of the samples, row by row (sampleYs.length x sampleXs.length)
+    private int drawnSamples[] = new int[0]; //States of the samples as they are drawn in the buffer
+    private Runnable cellSource; //Gives the cells again after a zoom or move by calling updateCells (or null)
+
+    private BufferedImage buffer; //Off-screen image the size of the component holding the drawn cells
+    private int pixels[]; //Pixels of the buffer, row by row
+    private boolean fullRedraw = true; //Whether every visible cell must be drawn again (after a zoom or move)
+
+    private int cellSize = 1; //Width and height of a cell in pixels
+    private int blockSize = 1; //Width and height in cells of the block drawn as each pixel (when cellSize is 1)
+    private int originX, originY; //Position in the component of the top left corner of the grid
+    private boolean fitted = true; //Whether the grid is fitted into the component (until the user zooms or moves it)
+    private int tiles[][]; //Pixels of the tile drawn for each state at the current cell size (indexed by state)
+
+    /*
+     * Creates a view of a grid of the desired size, sprites holds the image of each state
+     */
+    public GridView(int numCellsX, int numCellsY, Image sprites[], Color deadColor, boolean gridLines)
+    {
+        this.numCellsX = numCellsX;
+        this.numCellsY = numCellsY;
+        this.sprites = sprites;
+        this.deadColor = deadColor;
+        this.gridLines = gridLines;
+        setOpaque(true);
+        setBackground(Color.black);
+
+        //Rebuild the off-screen image whenever the component changes size
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e){
+                rebuildBuffer();
+            }
+        });
+
+        //Zoom around the mouse with the wheel, and move the grid by dragging it
+        MouseAdapter mouse = new MouseAdapter() {
+            private int lastX, lastY; //Position of the mouse when it was last pressed or dragged
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e){
+                zoom(e.getX(), e.getY(), -e.getWheelRotation());
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e){
+                lastX = e.getX();
+                lastY = e.getY();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e){
+                moveBy(e.getX() - lastX, e.getY() - lastY);
+                lastX = e.getX();
+                lastY = e.getY();
+            }
+        };
+        addMouseWheelListener(mouse);
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+
+        //Zoom around the center with + and -, and fit the grid back into the component with Home
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke('+'), "zoomIn");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke('='), "zoomIn");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke('-'), "zoomOut");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("HOME"), "fit");
+        getActionMap().put("zoomIn", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e){
+                zoom(getWidth() / 2, getHeight() / 2, 1);
+            }
+        });
+        getActionMap().put("zoomOut", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e){
+                zoom(getWidth() / 2, getHeight() / 2, -1);
+            }
+        });
+        getActionMap().put("fit", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e){
+                fitted = true;
+                rebuildBuffer();
+            }
+        });
+    }
+
+    //Returns the column of the cell at the desired x pixel (or -1 if it is outside of the grid)
+    //When zoomed out, this is the first column of the block drawn at that pixel
+    public int getColumnAt(int pixelX){
+        int column = (pixelX - originX) / cellSize * blockSize;
+        return (pixelX < originX || column >= numCellsX) ? -1 : column;
+    }
+
+    //Returns the row of the cell at the desired y pixel (or -1 if it is outside of the grid)
+    public int getRowAt(int pixelY){
+        int row = (pixelY - originY) / cellSize * blockSize;
+        return (pixelY < originY || row >= numCellsY) ? -1 : row;
+    }
+
+    public int getCellSize(){
+        return cellSize;
+    }
+
+    public int getBlockSize(){
+        return blockSize;
+    }
+
+    //Zooms in (steps above 0) or out (steps below 0) by a factor of two per step, keeping the cell
+    //at the desired pixel in place
+    public void zoom(int pixelX, int pixelY, int steps){
+        //Position of the pixel in cells
+        double cellX = (pixelX - originX) * (double) blockSize / cellSize;
+        double cellY = (pixelY - originY) * (double) blockSize / cellSize;
+        for (; steps > 0; steps--){
+            if (blockSize > 1){
+                blockSize /= 2;
+            }
+            else{
+                cellSize = Math.min(Math.max(maxCellSize, cellSize), cellSize * 2);
+            }
+        }
+        for (; steps < 0; steps++){
+            if (cellSize > 1){
+                cellSize /= 2;
+            }
+            else{
+                blockSize = Math.min(maxBlockSize, blockSize * 2);
+            }
+        }
+        originX = pixelX - (int) Math.round(cellX * cellSize / blockSize);
+        originY = pixelY - (int) Math.round(cellY * cellSize / blockSize);
+        fitted = false;
+        redraw();
+    }
+
+    //Moves the grid by the desired number of pixels
+    public void moveBy(int dx, int dy){
+        originX += dx;
+        originY += dy;
+        fitted = false;
+        redraw();
+    }
+
+    //Chooses the largest cells that fit the whole grid in the component (or the smallest blocks when
+    //even 1 pixel cells do not fit), and centers the grid
+    private void fitToComponent(){
+        cellSize = Math.max(1, Math.min(getWidth() / numCellsX, getHeight() / numCellsY));
+        blockSize = 1;
+        while (blockSize < maxBlockSize && ((numCellsX + blockSize - 1) / blockSize > getWidth()
+                || (numCellsY + blockSize - 1) / blockSize > getHeight())){
+            blockSize *= 2;
+        }
+        originX = (getWidth() - (numCellsX + blockSize - 1) / blockSize * cellSize) / 2;
+        originY = (getHeight() - (numCellsY + blockSize - 1) / blockSize * cellSize) / 2;
+    }
+
+    //Creates an off-screen image that fits the component, and draws every visible cell into it
+    private void rebuildBuffer(){
+        if (getWidth() <= 0 || getHeight() <= 0){
+            return;
+        }
+        if (fitted){
+            fitToComponent();
+        }
+        buffer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
+        redraw();
+    }
+
+    //Sets what gives the cells again after a zoom or move (it must call updateCells), so the cells that came
+    //into view are drawn at once instead of at the next update
+    public void setCellSource(Runnable cellSource){
+        this.cellSource = cellSource;
+    }
+
+    //Draws every visible cell again (after the zoom or position changed) and repaints the component
+    private void redraw(){
+        fullRedraw = true;
+        if (buffer == null){
+            return;
+        }
+        layoutSamples();
+        if (cellSource != null){
+            cellSource.run();
+        }
+        //Without new cells only the background is drawn, and every visible cell is drawn by the next update
+        if (fullRedraw){
+            java.util.Arrays.fill(pixels, getBackground().getRGB());
+            repaint();
+        }
+    }
+
+    //Takes the newest states of the cells, redraws the visible cells whose state changed since they were
+    //last drawn, and repaints the area around them
+    //states holds the state of every cell row by row (cell (x, y) is at y*numCellsX + x), only the visible
+    //cells (or the samples of the visible blocks) are read from it
+    public void updateCells(int states[]){
+        //Cells are only drawn once the component has a size (then every visible cell is drawn)
+        if (buffer == null){
+            return;
+        }
+        copySamples(states);
+        int changed[] = draw();
+        if (changed != null){
+            repaint(changed[0], changed[1], changed[2], changed[3]);
+        }
+    }
+
+    //Finds the visible blocks and the cells sampled from each of them (called whenever the zoom, the position
+    //or the size of the component changes), and forgets the states that were drawn
+    private void layoutSamples(){
+        //Visible blocks (the ones partly outside of the component included)
+        firstBlockX = Math.max(0, -originX / cellSize);
+        firstBlockY = Math.max(0, -originY / cellSize);
+        int endBlockX = Math.min(ceilDiv(numCellsX, blockSize), ceilDiv(buffer.getWidth() - originX, cellSize));
+        int endBlockY = Math.min(ceilDiv(numCellsY, blockSize), ceilDiv(buffer.getHeight() - originY, cellSize));
+        //Large blocks are sampled every few cells, so each block reads at most maxSamples x maxSamples cells
+        int stride = Math.max(1, blockSize / maxSamples);
+        samplesPerBlock = blockSize / stride;
+        sampleXs = sampleCells(firstBlockX, endBlockX, stride, numCellsX);
+        sampleYs = sampleCells(firstBlockY, endBlockY, stride, numCellsY);
+        samples = new int[sampleXs.length * sampleYs.length];
+        drawnSamples = new int[samples.length];
+    }
+
+    //Returns the columns (or rows) of the cells sampled from the blocks firstBlock (inclusive) to endBlock
+    //(exclusive), samplesPerBlock of them per block every stride cells (-1 past the end of the grid)
+    private int[] sampleCells(int firstBlock, int endBlock, int stride, int numCells){
+        int cells[] = new int[Math.max(0, endBlock - firstBlock) * samplesPerBlock];
+        for (int i = 0; i < cells.length; i++){
+            int cell = (firstBlock + i / samplesPerBlock) * blockSize + i % samplesPerBlock * stride;
+            cells[i] = cell < numCells ? cell : -1;
+        }
+        return cells;
+    }
+
+    //Copies the states of the sampled cells out of the states of the whole grid
+    private void copySamples(int states[]){
+        int numSamplesX = sampleXs.length;
+        if (numSamplesX == 0){
+            return;
+        }
+        for (int row = 0; row < sampleYs.length; row++){
+            int start = row * numSamplesX;
+            if (sampleYs[row] < 0){
+                java.util.Arrays.fill(samples, start, start + numSamplesX, -1);
+                continue;
+            }
+            int rowStart = sampleYs[row] * numCellsX;
+            //Single cells are consecutive, so each row is copied at once
+            if (blockSize == 1){
+                System.arraycopy(states, rowStart + sampleXs[0], samples, start, numSamplesX);
+            }
+            else{
+                for (int column = 0; column < numSamplesX; column++){
+                    samples[start + column] = sampleXs[column] < 0 ? -1 : states[rowStart + sampleXs[column]];
+                }
+            }
+        }
+    }
+
+    //Draws the visible blocks into the buffer (every one of them if fullRedraw is set, otherwise the ones
+    //with a sample that changed), returns the area that was drawn as {x, y, width, height}, or null if nothing was
+    private int[] draw(){
+        if (fullRedraw){
+            java.util.Arrays.fill(pixels, getBackground().getRGB());
+            if (tiles == null || tiles[0].length != cellSize * cellSize){
+                buildTiles();
+            }
+        }
+        int numSamplesX = sampleXs.length;
+        int numBlocksX = numSamplesX / samplesPerBlock;
+        int numBlocksY = sampleYs.length / samplesPerBlock;
+        int numStates = flatColors.length;
+        int counts[] = new int[numStates]; //Number of samples of each state in a block
+        //Bounds of the blocks that were drawn
+        int minX = numBlocksX, minY = numBlocksY, maxX = -1, maxY = -1;
+        for (int by = 0; by < numBlocksY; by++){
+            for (int bx = 0; bx < numBlocksX; bx++){
+                //Look for a sample of the block that changed since it was drawn
+                boolean changed = fullRedraw;
+                int first = by * samplesPerBlock * numSamplesX + bx * samplesPerBlock; //First sample of the block
+                for (int sy = 0; sy < samplesPerBlock; sy++){
+                    for (int i = first + sy * numSamplesX; i < first + sy * numSamplesX + samplesPerBlock; i++){
+                        if (samples[i] != drawnSamples[i]){
+                            drawnSamples[i] = samples[i];
+                            changed = true;
+                        }
+                    }
+                }
+                if (!changed){
+                    continue;
+                }
+                int pixelX = originX + (firstBlockX + bx) * cellSize;
+                int pixelY = originY + (firstBlockY + by) * cellSize;
+                if (blockSize == 1){
+                    drawTile(pixelX, pixelY, samples[first]);
+                }
+                else{
+                    drawBlock(pixelX, pixelY, first, counts);
+                }
+                minX = Math.min(minX, bx);
+                minY = Math.min(minY, by);
+                maxX = Math.max(maxX, bx);
+                maxY = Math.max(maxY, by);
+            }
+        }
+        fullRedraw = false;
+        if (maxX < 0){
+            return null;
+        }
+        return new int[] {originX + (firstBlockX + minX) * cellSize, originY + (firstBlockY + minY) * cellSize,
+            (maxX - minX + 1) * cellSize, (maxY - minY + 1) * cellSize};
+    }
+
+    //Copies the tile of a state into the buffer with its top left corner at the desired pixel
+    //(the part of the tile outside of the buffer is left out)
+    private void drawTile(int pixelX, int pixelY, int state){
+        int tile[] = state >= 0 && state < tiles.length ? tiles[state] : tiles[GameEngine.DEAD];
+        int width = buffer.getWidth();
+        int startX = Math.max(0, -pixelX), endX = Math.min(cellSize, width - pixelX);
+        int startY = Math.max(0, -pixelY), endY = Math.min(cellSize, buffer.getHeight() - pixelY);
+        for (int y = startY; y < endY; y++){
+            System.arraycopy(tile, y * cellSize + startX, pixels, (pixelY + y) * width + pixelX + startX, endX - startX);
+        }
+    }
+
+    //Draws a block of blockSize x blockSize cells as the pixel at (pixelX, pixelY): the colour of the bases if
+    //its samples hold any, otherwise the colours of the other states mixed by how many samples of each it holds
+    //first is the index of the first sample of the block in samples
+    private void drawBlock(int pixelX, int pixelY, int first, int counts[]){
+        java.util.Arrays.fill(counts, 0);
+        for (int sy = 0; sy < samplesPerBlock; sy++){
+            for (int i = first + sy * sampleXs.length; i < first + sy * sampleXs.length + samplesPerBlock; i++){
+                int state = samples[i];
+                if (state >= 0 && state < counts.length){
+                    counts[state]++;
+                }
+            }
+        }
+        pixels[pixelY * buffer.getWidth() + pixelX] = mixColors(counts);
+    }
+
+    //Returns the colour of a block from the number of cells of each state in it
+    private int mixColors(int counts[]){
+        int playerBases = counts[GameEngine.PLAYER_BASE];
+        int computerBases = counts[GameEngine.COMPUTER_BASE];
+        if (playerBases + computerBases > 0){
+            return flatColors[playerBases >= computerBases ? GameEngine.PLAYER_BASE : GameEngine.COMPUTER_BASE];
+        }
+        int red = 0, green = 0, blue = 0, total = 0;
+        for (int state = GameEngine.DEAD; state <= GameEngine.COMPUTER; state++){
+            int count = counts[state];
+            int color = flatColors[state];
+            red += count * ((color >> 16) & 0xff);
+            green += count * ((color >> 8) & 0xff);
+            blue += count * (color & 0xff);
+            total += count;
+        }
+        return total == 0 ? 0 : (red / total) << 16 | (green / total) << 8 | blue / total;
+    }
+
+    //Scales the tile of each state to the current cell size: its background, its sprite (or its flat colour
+    //if the cells are too small for sprites) and the grid lines
+    private void buildTiles(){
+        if (flatColors == null){
+            flatColors = new int[sprites.length];
+            for (int state = 0; state < sprites.length; state++){
+                flatColors[state] = averageColor(state);
+            }
+        }
+        tiles = new int[sprites.length][];
+        for (int state = 0; state < sprites.length; state++){
+            BufferedImage tile = new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = tile.createGraphics();
+            if (cellSize >= minSpriteSize && hasSprite(state)){
+                drawSprite(g, state, cellSize);
+            }
+            else{
+                g.setColor(new Color(flatColors[state]));
+                g.fillRect(0, 0, cellSize, cellSize);
+            }
+            //Draw the grid lines (only if the cells are big enough to still be visible)
+            if (gridLines && cellSize >= 4){
+                g.setColor(gridLineColor);
+                g.drawRect(0, 0, cellSize - 1, cellSize - 1);
+            }
+            g.dispose();
+            tiles[state] = tile.getRGB(0, 0, cellSize, cellSize, null, 0, cellSize);
+        }
+    }
+
+    private boolean hasSprite(int state){
+        return sprites[state] != null && sprites[state].getWidth(null) > 0;
+    }
+
+    //Draws the sprite of a state scaled to the desired size, on its background
+    private void drawSprite(Graphics2D g, int state, int size){
+        //Dead cells have a coloured background, the others are drawn on black
+        g.setColor(state == GameEngine.DEAD ? deadColor : Color.black);
+        g.fillRect(0, 0, size, size);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(sprites[state], 0, 0, size, size, null);
+    }
+
+    //Returns the average colour of the sprite of a state on its background (RGB)
+    private int averageColor(int state){
+        if (!hasSprite(state)){
+            return (state == GameEngine.DEAD ? deadColor : defaultColors[state % defaultColors.length]).getRGB() & 0xffffff;
+        }
+        BufferedImage image = new BufferedImage(minSpriteSize, minSpriteSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        drawSprite(g, state, minSpriteSize);
+        g.dispose();
+        long red = 0, green = 0, blue = 0;
+        for (int color : image.getRGB(0, 0, minSpriteSize, minSpriteSize, null, 0, minSpriteSize)){
+            red += (color >> 16) & 0xff;
+            green += (color >> 8) & 0xff;
+            blue += color & 0xff;
+        }
+        int n = minSpriteSize * minSpriteSize;
+        return (int) (red / n) << 16 | (int) (green / n) << 8 | (int) (blue / n);
+    }
+
+    //Division rounded up, for a positive divisor (numbers of cells or pixels up to 0 give 0)
+    static private int ceilDiv(int a, int b){
+        return a <= 0 ? 0 : (a + b - 1) / b;
+    }
+
+    @Override
+    public Dimension getPreferredSize(){
+        return new Dimension(ceilDiv(numCellsX, blockSize) * cellSize, ceilDiv(numCellsY, blockSize) * cellSize);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g){
+        if (buffer != null){
+            g.drawImage(buffer, 0, 0, null);
+        }
+        //Fill any part of the component the buffer does not cover yet
+        g.setColor(getBackground());
+        if (buffer == null || buffer.getWidth() < getWidth() || buffer.getHeight() < getHeight()){
+            int covered = buffer == null ? 0 : buffer.getWidth();
+            g.fillRect(covered, 0, getWidth() - covered, getHeight());
+            covered = buffer == null ? 0 : buffer.getHeight();
+            g.fillRect(0, covered, getWidth(), getHeight() - covered);
+        }
+    }
+}
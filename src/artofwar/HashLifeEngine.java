@@ -0,0 +1,460 @@
+/*
+ * Hashlife backend for The Art of War, for very long runs. The grid is stored as a
+ * quadtree in which every distinct square of cells is stored only once (equal squares
+ * share the same node), and the future of each node is memoized. A node of size 2^k
+ * knows its center square 2^(k-2) generations ahead, so boards that repeat themselves
+ * or settle down can be stepped thousands of generations at once, while giving the
+ * same generations and winner as GameEngine.computeNextGeneration.
+ *
+ * The grid is surrounded by cells in an extra state (outside) that never changes and
+ * is not counted as a neighbour, so the edges of the grid behave as in the other engines.
+ * Base cells are never born, so the number of base cells of each player only goes down:
+ * if both players still have bases after a jump, they had bases in every generation of
+ * the jump, otherwise the jump is halved until the first generation without bases is found.
+ */
+package artofwar;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class HashLifeEngine implements Simulation
+{
+    static private final int outside = 5; //State of the cells around the grid
+    static private final int numLeafStates = 6; //The five states of a cell and outside
+    //Packed counts added for a cell of each state (4 bits per state, see RuleSet), outside cells are not counted
+    static private final int countIncrement[] = {0, 1, 1 << 4, 1 << 8, 1 << 12, 0};
+
+    static public final int defaultMaxNodes = 1 << 20; //Nodes kept before unused ones are evicted
+
+    //A square of 2^level cells, made of four squares of half the size (a single cell if level is 0)
+    static private final class Node
+    {
+        final int level;
+        final Node nw, ne, sw, se; //Quadrants (null for a single cell)
+        final int state; //State of a single cell (0 for bigger squares)
+        final int hash;
+        final int bases1; //Number of player 1 base cells in the square
+        final int bases2; //Number of player 2 base cells in the square
+        Node next; //Next node in the same bucket of the node table
+        //results[j] is the center of this square 2^j generations ahead (computed when first needed)
+        Node results[];
+        int mark; //Last garbage collection that found this node in use
+
+        //Creates a single cell
+        Node(int state)
+        {
+            level = 0;
+            nw = ne = sw = se = null;
+            this.state = state;
+            hash = (state + 1) * 0x9E3779B1;
+            bases1 = state == GameEngine.PLAYER_BASE ? 1 : 0;
+            bases2 = state == GameEngine.COMPUTER_BASE ? 1 : 0;
+        }
+
+        Node(Node nw, Node ne, Node sw, Node se, int hash)
+        {
+            level = nw.level + 1;
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            state = 0;
+            this.hash = hash;
+            bases1 = nw.bases1 + ne.bases1 + sw.bases1 + se.bases1;
+            bases2 = nw.bases2 + ne.bases2 + sw.bases2 + se.bases2;
+        }
+    }
+
+    private final int numCellsX; //Width of grid
+    private final int numCellsY; //Height of grid
+    private final int rootLevel; //Level of the root, whose center half holds the grid
+    private final int offset; //Position of the grid in the root (the same along both axes)
+
+    private final Node cells[] = new Node[numLeafStates]; //The single cells
+    private Node outsideNodes[] = new Node[1]; //Squares of outside cells of each level
+
+    //Table of every node, so that equal squares are only stored once
+    private Node table[] = new Node[1 << 10];
+    private int numNodes = 0;
+    private int maxNodes = defaultMaxNodes; //Unused nodes are evicted when there are more than this
+    private int numCollections = 0; //Number of times unused nodes were evicted
+
+    private Node root; //The grid surrounded by outside cells
+    private int generation = 0; //Number of generations computed so far
+    private int winner = 0; //0 while the game is running, otherwise the winning player (1 or 2)
+    //Exponent of the next jump, which grows while jumps succeed so a game about to end is not computed far past its end
+    private int jumpLevel = 0;
+    private final RuleSet rules; //Rules applied to every cell
+
+    /*
+     * Creates a quadtree holding the same cells as the desired simulation, following the rules of the game
+     */
+    public HashLifeEngine(Simulation source)
+    {
+        this(source, RuleSet.STANDARD);
+    }
+
+    /*
+     * Creates a quadtree holding the same cells as the desired simulation, following the desired rules
+     * (they cannot be changed afterwards, since the memoized futures of the nodes depend on them)
+     */
+    public HashLifeEngine(Simulation source, RuleSet rules)
+    {
+        this.rules = rules;
+        numCellsX = source.getWidth();
+        numCellsY = source.getHeight();
+        for (int state = 0; state < numLeafStates; state++){
+            cells[state] = new Node(state);
+        }
+        outsideNodes[0] = cells[outside];
+
+        //The grid fits in the center half of the root
+        int level = 3;
+        while ((1 << (level - 1)) < Math.max(numCellsX, numCellsY)){
+            level++;
+        }
+        rootLevel = level;
+        offset = 1 << (level - 2);
+
+        int states[] = new int[numCellsX * numCellsY];
+        source.copyStates(states);
+        root = build(states, rootLevel, 0, 0);
+    }
+
+    @Override
+    public int getWidth(){
+        return numCellsX;
+    }
+
+    @Override
+    public int getHeight(){
+        return numCellsY;
+    }
+
+    @Override
+    public int getGeneration(){
+        return generation;
+    }
+
+    @Override
+    public int getWinner(){
+        return winner;
+    }
+
+    @Override
+    public int getState(int x, int y){
+        Node node = root;
+        x += offset;
+        y += offset;
+        while (node.level > 0){
+            int half = 1 << (node.level - 1);
+            boolean east = (x & half) != 0;
+            boolean south = (y & half) != 0;
+            node = south ? (east ? node.se : node.sw) : (east ? node.ne : node.nw);
+        }
+        return node.state;
+    }
+
+    @Override
+    public void copyStates(int dest[]){
+        copyStates(root, -offset, -offset, dest);
+    }
+
+    //Copies the cells of the node, whose top left corner is at (x, y) of the grid, that are inside the grid
+    private void copyStates(Node node, int x, int y, int dest[]){
+        int size = 1 << node.level;
+        if (x >= numCellsX || y >= numCellsY || x + size <= 0 || y + size <= 0){
+            return;
+        }
+        if (node.level == 0){
+            dest[y * numCellsX + x] = node.state;
+            return;
+        }
+        int half = size >> 1;
+        copyStates(node.nw, x, y, dest);
+        copyStates(node.ne, x + half, y, dest);
+        copyStates(node.sw, x, y + half, dest);
+        copyStates(node.se, x + half, y + half, dest);
+    }
+
+    //Returns the number of distinct squares stored
+    public int getNumNodes(){
+        return numNodes;
+    }
+
+    //Sets the number of nodes kept before the ones the grid no longer uses are evicted (checked between jumps)
+    public void setMaxNodes(int maxNodes){
+        this.maxNodes = maxNodes;
+    }
+
+    public int getMaxNodes(){
+        return maxNodes;
+    }
+
+    //Returns the number of times unused nodes were evicted
+    public int getNumCollections(){
+        return numCollections;
+    }
+
+    //Computes and plants a single generation, returns false if the game had already ended
+    @Override
+    public boolean step(){
+        return step(1) == 1;
+    }
+
+    //Computes up to the desired number of generations (stops early if the game ends)
+    //Returns the number of generations that were actually computed
+    @Override
+    public int step(int numGenerations){
+        int computed = 0;
+        while (computed < numGenerations && winner == 0){
+            //If there are no user bases the computer wins (and the reverse), the generation is still computed
+            if (root.bases1 == 0){
+                winner = 2;
+            }
+            else if (root.bases2 == 0){
+                winner = 1;
+            }
+            if (winner != 0){
+                root = advance(0);
+                generation++;
+                computed++;
+                break;
+            }
+
+            //Jump, halving the jump while it ends without bases for either player
+            int j = Math.min(jumpLevel, 31 - Integer.numberOfLeadingZeros(numGenerations - computed));
+            Node next = advance(j);
+            boolean halved = false;
+            while (j > 0 && (next.bases1 == 0 || next.bases2 == 0)){
+                j--;
+                next = advance(j);
+                halved = true;
+            }
+            root = next;
+            generation += 1 << j;
+            computed += 1 << j;
+            jumpLevel = halved ? j : j + 1;
+
+            if (numNodes > maxNodes){
+                collectGarbage();
+            }
+        }
+        return computed;
+    }
+
+    //Returns the root 2^j generations ahead
+    private Node advance(int j){
+        //Surround the root with outside cells until its result (center half) holds the whole root
+        Node node = root;
+        while (node.level < rootLevel + 1 || node.level < j + 2){
+            Node o = outsideNode(node.level - 1);
+            node = join(join(o, o, o, node.nw), join(o, o, node.ne, o),
+                    join(o, node.sw, o, o), join(node.se, o, o, o));
+        }
+        node = result(node, j);
+        //Take the center of the result until it is the size of the root again
+        while (node.level > rootLevel){
+            node = center(node);
+        }
+        return node;
+    }
+
+    //Returns the center half of the node 2^j generations ahead (j is at most the level of the node minus 2)
+    private Node result(Node node, int j){
+        if (node.results == null){
+            node.results = new Node[node.level - 1];
+        }
+        if (node.results[j] != null){
+            return node.results[j];
+        }
+
+        Node result;
+        if (node.level == 2){
+            result = computeLeaf(node);
+        }
+        else{
+            //The nine overlapping squares of half the size
+            Node n00 = node.nw;
+            Node n01 = join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw);
+            Node n02 = node.ne;
+            Node n10 = join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne);
+            Node n11 = center(node);
+            Node n12 = join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne);
+            Node n20 = node.sw;
+            Node n21 = join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw);
+            Node n22 = node.se;
+
+            //Their centers, moved half of the generations ahead when jumping as far as this node allows
+            Node r00, r01, r02, r10, r11, r12, r20, r21, r22;
+            int rest = j; //Exponent of the generations left after the first half
+            if (j == node.level - 2){
+                r00 = result(n00, j - 1);
+                r01 = result(n01, j - 1);
+                r02 = result(n02, j - 1);
+                r10 = result(n10, j - 1);
+                r11 = result(n11, j - 1);
+                r12 = result(n12, j - 1);
+                r20 = result(n20, j - 1);
+                r21 = result(n21, j - 1);
+                r22 = result(n22, j - 1);
+                rest = j - 1;
+            }
+            else{
+                r00 = center(n00);
+                r01 = center(n01);
+                r02 = center(n02);
+                r10 = center(n10);
+                r11 = center(n11);
+                r12 = center(n12);
+                r20 = center(n20);
+                r21 = center(n21);
+                r22 = center(n22);
+            }
+
+            //The four quadrants of the result, moved the rest of the generations ahead
+            result = join(result(join(r00, r01, r10, r11), rest), result(join(r01, r02, r11, r12), rest),
+                    result(join(r10, r11, r20, r21), rest), result(join(r11, r12, r21, r22), rest));
+        }
+        node.results[j] = result;
+        return result;
+    }
+
+    //Returns the center 2x2 cells of a 4x4 node one generation ahead
+    private Node computeLeaf(Node node){
+        //Cells of the node row by row
+        int s[] = {
+            node.nw.nw.state, node.nw.ne.state, node.ne.nw.state, node.ne.ne.state,
+            node.nw.sw.state, node.nw.se.state, node.ne.sw.state, node.ne.se.state,
+            node.sw.nw.state, node.sw.ne.state, node.se.nw.state, node.se.ne.state,
+            node.sw.sw.state, node.sw.se.state, node.se.sw.state, node.se.se.state
+        };
+        return join(cells[nextState(s, 1, 1)], cells[nextState(s, 2, 1)],
+                cells[nextState(s, 1, 2)], cells[nextState(s, 2, 2)]);
+    }
+
+    //Applies the rules of The Art of War to the cell (x, y) of a 4x4 block of cells
+    private int nextState(int s[], int x, int y){
+        int state = s[y * 4 + x];
+        if (state == outside){
+            return outside;
+        }
+        //Count the cells of each state in the 3x3 area around the cell, packed as the table of the rules expects
+        //(outside cells are not counted)
+        int counts = 0;
+        for (int i = y - 1; i <= y + 1; i++){
+            for (int j = x - 1; j <= x + 1; j++){
+                counts += countIncrement[s[i * 4 + j]];
+            }
+        }
+        return rules.nextState(state, counts);
+    }
+
+    //Returns the center half of a node (with no generations computed)
+    private Node center(Node node){
+        return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+    }
+
+    //Returns a node of outside cells of the desired level
+    private Node outsideNode(int level){
+        if (level >= outsideNodes.length){
+            outsideNodes = java.util.Arrays.copyOf(outsideNodes, level + 1);
+        }
+        if (outsideNodes[level] == null){
+            Node o = outsideNode(level - 1);
+            outsideNodes[level] = join(o, o, o, o);
+        }
+        return outsideNodes[level];
+    }
+
+    //Builds the node of the desired level whose top left corner is at (x, y) of the root
+    private Node build(int states[], int level, int x, int y){
+        int size = 1 << level;
+        int gridX = x - offset;
+        int gridY = y - offset;
+        if (gridX >= numCellsX || gridY >= numCellsY || gridX + size <= 0 || gridY + size <= 0){
+            return outsideNode(level);
+        }
+        if (level == 0){
+            return cells[states[gridY * numCellsX + gridX]];
+        }
+        int half = size >> 1;
+        return join(build(states, level - 1, x, y), build(states, level - 1, x + half, y),
+                build(states, level - 1, x, y + half), build(states, level - 1, x + half, y + half));
+    }
+
+    //Returns the node made of the desired quadrants, so that equal squares are the same node
+    private Node join(Node nw, Node ne, Node sw, Node se){
+        int hash = nw.hash * 0x9E3779B1 + ne.hash * 0x85EBCA77 + sw.hash * 0xC2B2AE3D + se.hash * 0x27D4EB2F;
+        hash ^= hash >>> 15;
+        int bucket = hash & (table.length - 1);
+        for (Node node = table[bucket]; node != null; node = node.next){
+            if (node.nw == nw && node.ne == ne && node.sw == sw && node.se == se){
+                return node;
+            }
+        }
+        Node node = new Node(nw, ne, sw, se, hash);
+        node.next = table[bucket];
+        table[bucket] = node;
+        numNodes++;
+        if (numNodes > table.length){
+            resizeTable(table.length * 2);
+        }
+        return node;
+    }
+
+    //Moves every node into a table of the desired number of buckets
+    private void resizeTable(int numBuckets){
+        Node old[] = table;
+        table = new Node[numBuckets];
+        for (Node first : old){
+            Node node = first;
+            while (node != null){
+                Node next = node.next;
+                int bucket = node.hash & (numBuckets - 1);
+                node.next = table[bucket];
+                table[bucket] = node;
+                node = next;
+            }
+        }
+    }
+
+    //Evicts the nodes that are not part of the grid, and forgets every memoized result
+    //(the results may be evicted nodes, and they are recomputed when needed again)
+    private void collectGarbage(){
+        numCollections++;
+        mark(root);
+        for (Node node : outsideNodes){
+            mark(node);
+        }
+        numNodes = 0;
+        for (int b = 0; b < table.length; b++){
+            Node kept = null;
+            Node node = table[b];
+            while (node != null){
+                Node next = node.next;
+                node.results = null;
+                if (node.mark == numCollections){
+                    node.next = kept;
+                    kept = node;
+                    numNodes++;
+                }
+                node = next;
+            }
+            table[b] = kept;
+        }
+    }
+
+    //Marks the node and every node inside it as being used
+    private void mark(Node node){
+        if (node.level == 0 || node.mark == numCollections){
+            return;
+        }
+        node.mark = numCollections;
+        mark(node.nw);
+        mark(node.ne);
+        mark(node.sw);
+        mark(node.se);
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Runs The Art of War without a window. Both bases are placed at random (using the same
+ * rules as the interactive game) and generations are computed as fast as the CPU allows.
+ *
+ * Usage: java -cp ArtOfWar.jar artofwar.HeadlessRunner [options] [generations] [seed] [cells file]
+ * Options:
+ *   --size=WxH               width and height of the grid in cells (default: 50x50)
+ *   --engine=grid|bitboard|hashlife|tiled
+ *                            grid backend used to compute the generations (default: grid)
+ *   --storage=FILE           keep the tiles of the tiled engine in FILE mapped into memory instead of in
+ *                            direct buffers, so boards bigger than the memory can be computed (tiled engine only)
+ *   --vector                 compute the tiles with the kernel built on the Vector API if ArtOfWar-vector.jar
+ *                            is on the class path and the jdk.incubator.vector module is added (tiled engine only)
+ *   --threads=N              number of threads used to compute each generation (default: 1)
+ *   --active-tiles           only compute the tiles near cells that changed (grid engine only)
+ *   --max-nodes=N            number of quadtree nodes kept before unused ones are evicted (hashlife only)
+ *   --stats=FILE             write the statistics of every generation to a CSV file (grid engine only)
+ *   --record=FILE            record every generation of the game to a file (see GameRecorder)
+ *   --ai=MS                  let the computer spend MS milliseconds choosing where to place its base
+ *   --cycle-window=N         look for boards repeating within the last N generations (grid engine only)
+ *   --on-cycle=stop|skip     when the board repeats, stop the game as a draw (default), or skip ahead to the
+ *                            generation limit without computing the repeated generations
+ *   --replay=FILE            replay a recorded game up to the desired generation instead of computing one
+ *   --timings                print the time spent computing and planting the generations (grid engine only)
+ *   --rules=FILE             play by the rules read from FILE (see RuleSet) instead of the rules of the game
+ *                            (every engine but the bitboard engine)
+ *   --verify                 compute every generation with the grid engine as well, and stop at the first cell
+ *                            where the chosen engine differs from it (bitboard, hashlife and tiled engines only)
+ */
+package artofwar;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class HeadlessRunner
+{
+    static private final int defaultGenerations = 50000; //Number of generations if none are given
+    static private final int defaultCellsY = 50; //Height of grid if none is given
+    static private final int defaultCellsX = 50; //Width of grid if none is given
+
+    public static void main(String args[]) throws IOException{
+        //Separate the options from the positional arguments
+        String engineName = "grid";
+        int threads = 1;
+        int numCellsX = defaultCellsX;
+        int numCellsY = defaultCellsY;
+        boolean activeTiles = false;
+        int maxNodes = HashLifeEngine.defaultMaxNodes;
+        String statsFile = null;
+        String recordFile = null;
+        String storageFile = null;
+        RuleSet rules = RuleSet.STANDARD;
+        String replayFile = null;
+        int cycleWindow = 0;
+        int aiBudget = 0;
+        boolean skipCycles = false;
+        FrameTimings timings = null;
+        boolean verify = false;
+        boolean vector = false;
+        List<String> positional = new ArrayList<>();
+        for (String arg : args){
+            if (arg.startsWith("--engine=")){
+                engineName = arg.substring("--engine=".length());
+            }
+            else if (arg.startsWith("--size=")){
+                int size[] = parseSize(arg.substring("--size=".length()));
+                numCellsX = size[0];
+                numCellsY = size[1];
+            }
+            else if (arg.equals("--active-tiles")){
+                activeTiles = true;
+            }
+            else if (arg.startsWith("--max-nodes=")){
+                maxNodes = Integer.parseInt(arg.substring("--max-nodes=".length()));
+            }
+            else if (arg.startsWith("--stats=")){
+                statsFile = arg.substring("--stats=".length());
+            }
+            else if (arg.startsWith("--rules=")){
+                rules = RuleSet.load(Paths.get(arg.substring("--rules=".length())));
+            }
+            else if (arg.startsWith("--storage=")){
+                storageFile = arg.substring("--storage=".length());
+            }
+            else if (arg.startsWith("--record=")){
+                recordFile = arg.substring("--record=".length());
+            }
+            else if (arg.startsWith("--replay=")){
+                replayFile = arg.substring("--replay=".length());
+            }
+            else if (arg.startsWith("--ai=")){
+                aiBudget = Integer.parseInt(arg.substring("--ai=".length()));
+            }
+            else if (arg.startsWith("--cycle-window=")){
+                cycleWindow = Integer.parseInt(arg.substring("--cycle-window=".length()));
+            }
+            else if (arg.startsWith("--on-cycle=")){
+                String action = arg.substring("--on-cycle=".length());
+                if (!action.equals("stop") && !action.equals("skip")){
+                    throw new IllegalArgumentException("Unknown action on a cycle: " + action);
+                }
+                skipCycles = action.equals("skip");
+            }
+            else if (arg.equals("--verify")){
+                verify = true;
+            }
+            else if (arg.equals("--vector")){
+                vector = true;
+            }
+            else if (arg.equals("--timings")){
+                timings = new FrameTimings();
+            }
+            else if (arg.startsWith("--threads=")){
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            }
+            else{
+                positional.add(arg);
+            }
+        }
+
+        //Read the (optional) positional arguments
+        int numGenerations = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : defaultGenerations;
+        if (replayFile != null){
+            replay(replayFile, numGenerations);
+            return;
+        }
+        long seed = positional.size() > 1 ? Long.parseLong(positional.get(1)) : System.nanoTime();
+        Random rand = new Random(seed);
+
+        if (recordFile != null && !GameRecorder.canRecord(numCellsX, numCellsY)){
+            System.err.println("A grid of " + numCellsX + "x" + numCellsY + " cells is too big to be recorded (at most "
+                    + GameRecorder.maxCells + " cells)");
+            return;
+        }
+        if (storageFile != null && !engineName.equals("tiled")){
+            System.err.println("Only the tiled engine is kept in a file");
+            return;
+        }
+        if (vector && !engineName.equals("tiled")){
+            System.err.println("Only the tiled engine computes with the Vector API");
+            return;
+        }
+        GameEngine engine = null;
+        TiledEngine tiled = null;
+        if (engineName.equals("tiled")){
+            //The tiled engine holds the board itself, so boards too big for a grid engine never need one
+            if (positional.size() > 2 || aiBudget > 0){
+                System.err.println("The tiled engine places both bases at random, without a cells file or the AI");
+                return;
+            }
+            tiled = new TiledEngine(numCellsX, numCellsY, storageFile == null ? null : Paths.get(storageFile));
+            tiled.setRules(rules);
+            if (vector && !tiled.useVectorKernel()){
+                System.err.println("The Vector API kernel is not available (it needs ArtOfWar-vector.jar on the class path"
+                        + " and --add-modules jdk.incubator.vector), computing the tiles without it");
+            }
+            tiled.plantBase(1 + rand.nextInt(numCellsX-2), 1 + rand.nextInt(numCellsY-2), GameEngine.PLAYER);
+            if (!tiled.plantComputerBase(rand)){
+                System.err.println("There is no room for the computer's base");
+                return;
+            }
+        }
+        else{
+            engine = new GameEngine(numCellsX, numCellsY);
+            engine.setRules(rules);
+            //Plant the initial cells from a file, if wanted
+            if (positional.size() > 2){
+                engine.plantFromFile(positional.get(2));
+            }
+            //Plant the player's base at a random legal spot, followed by the computer's base (chosen by the AI if wanted)
+            engine.plantBase(1 + rand.nextInt(numCellsX-2), 1 + rand.nextInt(numCellsY-2), GameEngine.PLAYER);
+            int spot[] = null;
+            if (aiBudget > 0){
+                MonteCarloAI ai = new MonteCarloAI(aiBudget);
+                spot = ai.chooseBase(engine, rand);
+                ai.shutdown();
+            }
+            if (spot != null){
+                engine.plantBase(spot[0], spot[1], GameEngine.COMPUTER);
+            }
+            else if (!engine.plantComputerBase(rand)){
+                System.err.println("There is no room for the computer's base");
+                return;
+            }
+        }
+
+        //Keep a copy of the starting cells in a grid engine to check the other engines against, if wanted
+        GameEngine reference = null;
+        if (verify && !engineName.equals("grid")){
+            reference = new GameEngine(numCellsX, numCellsY);
+            reference.setRules(rules);
+            int states[] = new int[numCellsX * numCellsY];
+            (tiled != null ? tiled : engine).copyStates(states);
+            reference.setStates(states);
+        }
+
+        //Choose the backend used to compute the generations
+        Simulation simulation;
+        if (engineName.equals("bitboard")){
+            //The bitboard engine has the rules of the game built into its bitwise operations
+            if (!rules.isStandard()){
+                System.err.println("The bitboard engine only plays by the rules of the game");
+                return;
+            }
+            BitBoardEngine bitBoard = new BitBoardEngine(engine);
+            bitBoard.setParallelism(threads);
+            simulation = bitBoard;
+        }
+        else if (engineName.equals("hashlife")){
+            HashLifeEngine hashLife = new HashLifeEngine(engine, rules);
+            hashLife.setMaxNodes(maxNodes);
+            simulation = hashLife;
+        }
+        else if (engineName.equals("tiled")){
+            tiled.setParallelism(threads);
+            simulation = tiled;
+        }
+        else if (engineName.equals("grid")){
+            engine.setParallelism(threads);
+            engine.setActiveTracking(activeTiles);
+            simulation = engine;
+        }
+        else{
+            System.err.println("Unknown engine: " + engineName);
+            return;
+        }
+        if (statsFile != null && simulation != engine){
+            System.err.println("Statistics are only kept by the grid engine");
+            return;
+        }
+        if (cycleWindow > 0 && simulation != engine){
+            System.err.println("Cycles are only found by the grid engine");
+            return;
+        }
+        if (timings != null && simulation != engine){
+            System.err.println("Timings are only measured by the grid engine");
+            return;
+        }
+        if (engine != null){
+            engine.setTimings(timings);
+        }
+        CycleDetector cycles = cycleWindow > 0 ? new CycleDetector(cycleWindow) : null;
+
+        //Compute the generations and time how long it takes
+        long start = System.nanoTime();
+        int computed;
+        if (statsFile == null && recordFile == null && cycles == null && reference == null){
+            computed = simulation.step(numGenerations);
+        }
+        else{
+            //Write a row of statistics, record the game and/or look for cycles after every generation
+            computed = 0;
+            try (PrintWriter out = statsFile == null ? null : new PrintWriter(statsFile);
+                    GameRecorder recorder = recordFile == null ? null
+                            : new GameRecorder(Paths.get(recordFile), numCellsX, numCellsY)){
+                if (out != null){
+                    out.println(GenerationStats.csvHeader());
+                }
+                if (recorder != null){
+                    recorder.record(simulation);
+                }
+                if (cycles != null){
+                    cycles.observe(engine.getHash(), engine.getGeneration());
+                }
+                while (computed < numGenerations && simulation.step()){
+                    computed++;
+                    if (reference != null){
+                        reference.step();
+                        if (!sameGeneration(simulation, reference)){
+                            return;
+                        }
+                    }
+                    if (out != null){
+                        out.println(engine.getStats().toCsvRow());
+                    }
+                    if (recorder != null){
+                        recorder.record(simulation);
+                    }
+                    if (cycles != null && cycles.getPeriod() == 0
+                            && cycles.observe(engine.getHash(), engine.getGeneration()) > 0){
+                        if (!skipCycles){
+                            break;
+                        }
+                        //Whole periods leave the board as it is, so only the generations after them are computed
+                        int period = cycles.getPeriod();
+                        int skipped = (numGenerations - computed) / period * period;
+                        engine.skipGenerations(skipped);
+                        computed += skipped;
+                    }
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (reference != null){
+            System.out.println("Verified: every generation matches the grid engine");
+        }
+
+        //Print the results
+        System.out.println("Seed: " + seed);
+        System.out.println("Engine: " + engineName);
+        System.out.println("Generations: " + computed);
+        if (cycles != null && cycles.getPeriod() > 0){
+            System.out.println("Cycle: the grid repeats every " + cycles.getPeriod() + " generations from generation "
+                    + (cycles.getCycleStart() - cycles.getPeriod()));
+        }
+        if (cycles != null && cycles.getPeriod() > 0 && !skipCycles){
+            System.out.println("Winner: none (draw, the grid repeats itself)");
+        }
+        else{
+            printWinner(simulation.getWinner());
+        }
+        if (tiled != null){
+            System.out.println("Tiles: " + tiled.getNumLiveTiles() + " of " + tiled.getNumTiles() + " hold living cells");
+        }
+        System.out.printf("Time: %.3f s (%.0f generations per second)%n", seconds, computed / Math.max(seconds, 1e-9));
+        if (timings != null){
+            timings.printReport(System.out);
+        }
+    }
+
+    //Returns true if the simulation holds the same cells and winner as the reference, otherwise prints
+    //the first difference and returns false
+    private static boolean sameGeneration(Simulation simulation, GameEngine reference){
+        int numCellsX = reference.getWidth();
+        int states[] = new int[numCellsX * reference.getHeight()];
+        int expected[] = new int[states.length];
+        simulation.copyStates(states);
+        reference.copyStates(expected);
+        for (int i = 0; i < states.length; i++){
+            if (states[i] != expected[i]){
+                System.out.println("Mismatch at generation " + reference.getGeneration() + ", cell (" + i % numCellsX
+                        + ", " + i / numCellsX + "): " + states[i] + " instead of " + expected[i]);
+                return false;
+            }
+        }
+        if (simulation.getWinner() != reference.getWinner()){
+            System.out.println("Mismatch at generation " + reference.getGeneration() + ": winner "
+                    + simulation.getWinner() + " instead of " + reference.getWinner());
+            return false;
+        }
+        return true;
+    }
+
+    //Jumps to the desired generation of a recorded game (or its last one), and prints what the grid holds there
+    private static void replay(String file, int target) throws IOException{
+        long start = System.nanoTime();
+        try (GameReplay replay = new GameReplay(Paths.get(file))){
+            if (!replay.seek(target)){
+                System.err.println("The recording starts after generation " + target);
+                return;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            //Count the cells in each state
+            int states[] = new int[replay.getWidth() * replay.getHeight()];
+            replay.copyStates(states);
+            int counts[] = new int[5];
+            for (int state : states){
+                counts[state]++;
+            }
+
+            System.out.println("Recording: " + replay.getNumRecords() + " generations of a "
+                    + replay.getWidth() + "x" + replay.getHeight() + " grid (a keyframe every "
+                    + replay.getKeyframeInterval() + " generations)");
+            System.out.println("Generation: " + replay.getGeneration());
+            System.out.println("Cells: " + counts[GameEngine.PLAYER] + " player, " + counts[GameEngine.COMPUTER]
+                    + " computer, " + counts[GameEngine.PLAYER_BASE] + " player base, "
+                    + counts[GameEngine.COMPUTER_BASE] + " computer base");
+            if (replay.getWinner() == 0){
+                System.out.println("Winner: none yet");
+            }
+            else{
+                printWinner(replay.getWinner());
+            }
+            System.out.printf("Time: %.3f s%n", seconds);
+        }
+    }
+
+    private static void printWinner(int winner){
+        if (winner == 1){
+            System.out.println("Winner: the player");
+        }
+        else if (winner == 2){
+            System.out.println("Winner: the computer");
+        }
+        else{
+            System.out.println("Winner: none (generation limit reached)");
+        }
+    }
+
+    //Reads a grid size written as "WxH" (e.g. "4000x1000"), returns {width, height}
+    static int[] parseSize(String size){
+        int separator = size.indexOf('x');
+        if (separator < 0){
+            throw new IllegalArgumentException("Grid size must be written as WxH: " + size);
+        }
+        int width = Integer.parseInt(size.substring(0, separator));
+        int height = Integer.parseInt(size.substring(separator + 1));
+        //The bases need a 3x3 area away from the border
+        if (width < 4 || height < 4){
+            throw new IllegalArgumentException("Grid must be at least 4x4: " + size);
+        }
+        return new int[] {width, height};
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Computer player that looks ahead before placing its base or a block. A number of
+ * candidate spots are picked at random, and each is tried in many short rollouts: the
+ * move is made on a copy of the board, the player answers with a block at a random spot
+ * (sometimes), and a few generations are computed. The spot whose rollouts end best for
+ * the computer on average is chosen once the time budget runs out.
+ *
+ * The rollouts run in parallel, one worker per thread. Each worker owns a GameEngine that
+ * is reused for all of its rollouts (the board is copied into it from a shared snapshot),
+ * so no grid is allocated while thinking.
+ */
+package artofwar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class MonteCarloAI
+{
+    static public final int defaultBudgetMillis = 100; //Time spent choosing a move if none is given
+    static private final int numCandidates = 24; //Spots tried for each move
+    static private final int rolloutGenerations = 24; //Generations computed in each rollout
+    static private final int replyPercent = 50; //Chance that the player answers with a block in a rollout
+    static private final int baseWeight = 20; //A base cell is worth this many normal cells
+    static private final int winScore = 1000000; //Score of a rollout the computer wins (negated if it loses)
+    static private final long abandoned = Long.MIN_VALUE; //Returned by a rollout cut short by the deadline
+
+    private final int budgetMillis; //Time spent choosing a move
+    private final ForkJoinPool pool;
+    private GameEngine workerEngines[]; //Board reused by each worker (created for the size of the grid)
+    private long numRollouts = 0; //Number of rollouts made to choose the last move
+
+    public MonteCarloAI(int budgetMillis, int parallelism)
+    {
+        this.budgetMillis = budgetMillis;
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    public MonteCarloAI(int budgetMillis)
+    {
+        this(budgetMillis, Runtime.getRuntime().availableProcessors());
+    }
+
+    //Returns the number of rollouts made to choose the last move
+    public long getNumRollouts(){
+        return numRollouts;
+    }
+
+    //Chooses the center of the computer's base (at least 15 units away from the player's base, as in
+    //GameEngine.plantComputerBase), returns {x, y}, or null if no legal spot was found
+    public int[] chooseBase(GameEngine engine, Random rand){
+        //Sample the candidates from every legal spot
+        int spots[] = engine.listComputerBaseSpots();
+        List<int[]> candidates = new ArrayList<>();
+        for (int i = 0; i < numCandidates && spots.length > 0; i++){
+            int spot = spots[rand.nextInt(spots.length)];
+            candidates.add(new int[] {spot % engine.getWidth(), spot / engine.getWidth()});
+        }
+        if (candidates.isEmpty()){
+            return null;
+        }
+        return choose(engine, candidates, true, rand);
+    }
+
+    //Chooses the top left corner of the computer's 3x3 block (anywhere on the grid, as in
+    //GameEngine.plantComputerBlock), returns {x, y}
+    public int[] chooseBlock(GameEngine engine, Random rand){
+        List<int[]> candidates = new ArrayList<>();
+        for (int i = 0; i < numCandidates; i++){
+            candidates.add(new int[] {rand.nextInt(engine.getWidth() - 2), rand.nextInt(engine.getHeight() - 2)});
+        }
+        return choose(engine, candidates, false, rand);
+    }
+
+    //Tries the candidates in rollouts until the time budget runs out, and returns the best one on average
+    private int[] choose(GameEngine engine, final List<int[]> candidates, final boolean base, Random rand){
+        final int numCellsX = engine.getWidth();
+        final int numCellsY = engine.getHeight();
+        final int board[] = new int[numCellsX * numCellsY];
+        engine.copyStates(board);
+
+        //Reuse the boards of the workers if the grid is the same size
+        final int numWorkers = pool.getParallelism();
+        if (workerEngines == null || workerEngines[0].getWidth() != numCellsX
+                || workerEngines[0].getHeight() != numCellsY){
+            workerEngines = new GameEngine[numWorkers];
+            for (int w = 0; w < numWorkers; w++){
+                workerEngines[w] = new GameEngine(numCellsX, numCellsY);
+            }
+        }
+        //The rollouts follow the same rules as the game
+        for (GameEngine workerEngine : workerEngines){
+            workerEngine.setRules(engine.getRules());
+        }
+
+        //Each worker tries the candidates until the deadline (candidates with no rollout are never chosen,
+        //unless no candidate had one)
+        final long deadline = System.nanoTime() + budgetMillis * 1000000L;
+        List<Callable<long[][]>> workers = new ArrayList<>();
+        for (int w = 0; w < numWorkers; w++){
+            final GameEngine rollout = workerEngines[w];
+            final Random workerRand = new Random(rand.nextLong());
+            final int first = w;
+            workers.add(new Callable<long[][]>() {
+                @Override
+                public long[][] call(){
+                    long totals[] = new long[candidates.size()]; //Sum of the scores of each candidate
+                    long counts[] = new long[candidates.size()]; //Number of rollouts of each candidate
+                    //The worker first tries its share of the candidates (first, first+numWorkers, ...), so the
+                    //workers together try every candidate once as early as possible, then tries all of them in turn
+                    //The deadline is checked before every rollout, so a small budget is never overrun by much
+                    int share = (candidates.size() - first + numWorkers - 1) / numWorkers;
+                    int made = 0;
+                    while (System.nanoTime() < deadline){
+                        int c = made < share ? first + made * numWorkers : (first + made) % candidates.size();
+                        long score = rollout(rollout, board, candidates.get(c), base, workerRand, deadline);
+                        if (score == abandoned){
+                            break;
+                        }
+                        totals[c] += score;
+                        counts[c]++;
+                        made++;
+                    }
+                    return new long[][] {totals, counts};
+                }
+            });
+        }
+
+        //Add up the scores of the workers
+        long totals[] = new long[candidates.size()];
+        long counts[] = new long[candidates.size()];
+        try {
+            for (Future<long[][]> result : pool.invokeAll(workers)){
+                long worker[][] = result.get();
+                for (int c = 0; c < candidates.size(); c++){
+                    totals[c] += worker[0][c];
+                    counts[c] += worker[1][c];
+                }
+            }
+        } catch (InterruptedException | ExecutionException e){
+            throw new IllegalStateException("Rollouts failed", e);
+        }
+
+        //Choose the candidate with the best average score
+        int best = 0;
+        numRollouts = 0;
+        for (int c = 0; c < candidates.size(); c++){
+            numRollouts += counts[c];
+            if (counts[c] > 0 && (counts[best] == 0
+                    || (double) totals[c] / counts[c] > (double) totals[best] / counts[best])){
+                best = c;
+            }
+        }
+        return candidates.get(best);
+    }
+
+    //Plays out the move on the worker's board, returns how good the result is for the computer, or abandoned
+    //if the deadline passed before the rollout was over (checked after every generation, so a big board
+    //does not overrun the budget by a whole rollout)
+    static private long rollout(GameEngine engine, int board[], int move[], boolean base, Random rand, long deadline){
+        engine.setStates(board);
+        engine.restart();
+        if (base){
+            engine.plantBase(move[0], move[1], GameEngine.COMPUTER);
+        }
+        else{
+            engine.plantBlock(move[0], move[1], 3, 3, GameEngine.COMPUTER);
+            //The player may answer with a block of their own at a legal spot
+            if (rand.nextInt(100) < replyPercent){
+                int x = 1 + rand.nextInt(engine.getWidth() - 2);
+                int y = 1 + rand.nextInt(engine.getHeight() - 2);
+                if (engine.canPlantBlock(x, y)){
+                    engine.plantBlock(x - 1, y - 1, 3, 3, GameEngine.PLAYER);
+                }
+            }
+        }
+        for (int generation = 0; generation < rolloutGenerations && engine.step(); generation++){
+            if (System.nanoTime() >= deadline){
+                return abandoned;
+            }
+        }
+
+        if (engine.getWinner() == 2){
+            return winScore;
+        }
+        if (engine.getWinner() == 1){
+            return -winScore;
+        }
+        return engine.getPopulation(GameEngine.COMPUTER) - engine.getPopulation(GameEngine.PLAYER)
+                + baseWeight * (engine.getPopulation(GameEngine.COMPUTER_BASE)
+                - engine.getPopulation(GameEngine.PLAYER_BASE));
+    }
+
+    //Stops the threads used for the rollouts
+    public void shutdown(){
+        pool.shutdown();
+    }
+}
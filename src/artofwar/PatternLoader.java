@@ -0,0 +1,284 @@
+/*
+ * Loads the starting cells of a game from a file. Two formats are read:
+ *
+ * Cell list (the format of "Initial cells.txt"): one cell per line, written as
+ * "x-coord y-coord state". Blank lines and lines starting with # are skipped.
+ *
+ * Run-length encoded, for big boards: lines starting with # are comments, followed by a
+ * header line "x = width, y = height" giving the size of the pattern (placed at the top
+ * left corner of the grid). The cells follow row by row as runs of a count (1 if left
+ * out) and a tag: . for dead cells, A for player cells, B for computer cells, C for player
+ * base cells and D for computer base cells. $ ends a row (a count ends that many rows),
+ * ! ends the pattern, and whitespace and comments (# to the end of the line) between runs
+ * are ignored. Cells after the end of a row are dead, e.g. "3A$.2B!" is a row of 3 player
+ * cells above 2 computer cells.
+ *
+ * The file is read through a large buffer byte by byte without creating any objects per
+ * cell, and any malformed or out-of-range entry is reported with its line number.
+ */
+package artofwar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class PatternLoader
+{
+    static private final int bufferSize = 1 << 20; //Bytes read from the file at once
+    static private final int numStates = 5; //States go from 0 (dead) to 4 (computer base)
+    static private final String rleTags = ".ABCD"; //Tag of each state in the run-length encoded format
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+    private int c; //Current character (-1 at the end of the file)
+    private int line = 1; //Line of the current character
+
+    private PatternLoader(Path file, FileChannel channel) throws IOException
+    {
+        this.file = file;
+        this.channel = channel;
+        buffer.flip();
+        next();
+    }
+
+    //Sets the cells of the engine listed in the file (either format), the other cells are left as they were
+    //Throws an IOException naming the line of the first malformed or out-of-range entry
+    public static void load(Path file, GameEngine engine) throws IOException{
+        int states[] = new int[engine.getWidth() * engine.getHeight()];
+        engine.copyStates(states);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            PatternLoader loader = new PatternLoader(file, channel);
+            loader.skipComments();
+            //The run-length encoded format starts with its header, the cell list with a number
+            if (loader.c == 'x'){
+                loader.readRle(states, engine.getWidth(), engine.getHeight());
+            }
+            else{
+                loader.readCells(states, engine.getWidth(), engine.getHeight());
+            }
+        }
+        engine.setStates(states);
+    }
+
+    //Writes every cell of the simulation to a file in the run-length encoded format
+    public static void writeRle(Path file, Simulation simulation) throws IOException{
+        int numCellsX = simulation.getWidth();
+        int numCellsY = simulation.getHeight();
+        int states[] = new int[numCellsX * numCellsY];
+        simulation.copyStates(states);
+        try (java.io.Writer out = java.nio.file.Files.newBufferedWriter(file, java.nio.charset.StandardCharsets.US_ASCII)){
+            out.write("x = " + numCellsX + ", y = " + numCellsY + "\n");
+            int emptyRows = 0; //Rows ended since the last run that was written
+            int lineLength = 0;
+            for (int y = 0; y < numCellsY; y++){
+                //Dead cells at the end of a row are left out
+                int rowEnd = numCellsX;
+                while (rowEnd > 0 && states[y * numCellsX + rowEnd - 1] == GameEngine.DEAD){
+                    rowEnd--;
+                }
+                for (int x = 0; x < rowEnd; ){
+                    int state = states[y * numCellsX + x];
+                    int count = 1;
+                    while (x + count < rowEnd && states[y * numCellsX + x + count] == state){
+                        count++;
+                    }
+                    String run = (emptyRows > 0 ? (emptyRows > 1 ? emptyRows + "$" : "$") : "")
+                            + (count > 1 ? count + "" : "") + rleTags.charAt(state);
+                    emptyRows = 0;
+                    //Keep the lines short enough to read
+                    if (lineLength + run.length() > 70){
+                        out.write("\n");
+                        lineLength = 0;
+                    }
+                    out.write(run);
+                    lineLength += run.length();
+                    x += count;
+                }
+                emptyRows++;
+            }
+            out.write("!\n");
+        }
+    }
+
+    //Reads "x y state" lines into states
+    private void readCells(int states[], int numCellsX, int numCellsY) throws IOException{
+        while (c != -1){
+            skipSpaces();
+            if (c == '#'){
+                skipLine();
+            }
+            if (c == '\n' || c == -1){
+                next();
+                continue;
+            }
+
+            int x = readNumber("x-coord");
+            int y = readNumber("y-coord");
+            int state = readNumber("state");
+            skipSpaces();
+            if (c != '\n' && c != -1){
+                throw error("expected the end of the line after the state");
+            }
+            if (x >= numCellsX || y >= numCellsY){
+                throw error("cell (" + x + ", " + y + ") is outside of the " + numCellsX + "x" + numCellsY + " grid");
+            }
+            if (state >= numStates){
+                throw error("state " + state + " is not between 0 and " + (numStates - 1));
+            }
+            states[y * numCellsX + x] = state;
+        }
+    }
+
+    //Reads a run-length encoded pattern into states
+    private void readRle(int states[], int numCellsX, int numCellsY) throws IOException{
+        //Header: "x = width, y = height" (anything after the height is ignored)
+        next();
+        expect('=');
+        int width = readNumber("width");
+        expect(',');
+        skipSpaces();
+        if (c != 'y'){
+            throw error("expected \"y = height\" in the header");
+        }
+        next();
+        expect('=');
+        int height = readNumber("height");
+        skipLine();
+        if (width > numCellsX || height > numCellsY){
+            throw error("pattern of " + width + "x" + height + " cells does not fit the " + numCellsX + "x"
+                    + numCellsY + " grid");
+        }
+
+        int x = 0;
+        int y = 0;
+        while (true){
+            //Skip whitespace and comments between runs
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n'){
+                next();
+                continue;
+            }
+            if (c == '#'){
+                skipLine();
+                continue;
+            }
+            if (c == -1){
+                throw error("missing ! at the end of the pattern");
+            }
+            if (c == '!'){
+                return;
+            }
+
+            //Read the run
+            int count = 1;
+            if (c >= '0' && c <= '9'){
+                count = readNumber("count");
+            }
+            if (c == '$'){
+                y += count;
+                x = 0;
+                next();
+                continue;
+            }
+            int state = rleTags.indexOf(c);
+            if (c == -1 || state < 0){
+                throw error("expected one of " + rleTags + "$! after the count");
+            }
+            if (y >= height || x + count > width){
+                throw error("run of " + count + " cells goes past the " + width + "x" + height + " pattern");
+            }
+            for (int i = 0; i < count; i++){
+                states[y * numCellsX + x + i] = state;
+            }
+            x += count;
+            next();
+        }
+    }
+
+    //Reads a non-negative number (after any spaces on the same line)
+    private int readNumber(String name) throws IOException{
+        skipSpaces();
+        if (c < '0' || c > '9'){
+            throw error("expected the " + name + (c == '\n' || c == -1 ? " before the end of the line" : ""));
+        }
+        int value = 0;
+        while (c >= '0' && c <= '9'){
+            value = value * 10 + (c - '0');
+            if (value > 100000000){
+                throw error(name + " is too large");
+            }
+            next();
+        }
+        if (c != ' ' && c != '\t' && c != '\r' && c != '\n' && c != -1 && c != ','
+                && rleTags.indexOf(c) < 0 && c != '$'){
+            throw error("unexpected '" + (char) c + "' in the " + name);
+        }
+        return value;
+    }
+
+    //Skips spaces and the desired character
+    private void expect(char expected) throws IOException{
+        skipSpaces();
+        if (c != expected){
+            throw error("expected '" + expected + "'");
+        }
+        next();
+    }
+
+    //Skips blank lines and lines starting with #
+    private void skipComments() throws IOException{
+        while (true){
+            skipSpaces();
+            if (c == '#'){
+                skipLine();
+            }
+            else if (c == '\n'){
+                next();
+            }
+            else{
+                return;
+            }
+        }
+    }
+
+    //Skips spaces on the current line
+    private void skipSpaces() throws IOException{
+        while (c == ' ' || c == '\t' || c == '\r'){
+            next();
+        }
+    }
+
+    //Skips the rest of the current line, leaving the newline as the current character
+    private void skipLine() throws IOException{
+        while (c != '\n' && c != -1){
+            next();
+        }
+    }
+
+    //Moves to the next character of the file
+    private void next() throws IOException{
+        if (c == '\n'){
+            line++;
+        }
+        if (!buffer.hasRemaining()){
+            buffer.clear();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read <= 0){
+                c = -1;
+                return;
+            }
+        }
+        c = buffer.get() & 0xFF;
+    }
+
+    private IOException error(String message){
+        return new IOException(file + ":" + line + ": " + message);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Splits the rows of a grid into bands and computes them in parallel on a ForkJoinPool.
+ * Every row of the next generation only depends on the rows above, at and below it in
+ * the current generation, so the bands can be computed independently. The tallies
+ * returned by the bands (such as base cell counts) are added up in band order, so the
+ * result does not depend on the number of threads.
+ */
+package artofwar;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *
+ * @author mayba4372
+ */
+class RowBands
+{
+    //Computes the next generation of a band of rows
+    interface Rows
+    {
+        //Computes the rows startRow (inclusive) to endRow (exclusive) using the scratch space of the band,
+        //returns a tally for the band (such as the base cells counted in it), or 0 if there is nothing to add up
+        long computeRows(int band, int startRow, int endRow);
+    }
+
+    static private final int bandsPerThread = 4; //More bands than threads lets fast threads steal work
+    static private final int minRowsPerBand = 8; //Bands smaller than this are not worth a task
+
+    private final ForkJoinPool pool;
+    private final int numBands; //Number of bands the rows are split into
+
+    public RowBands(int parallelism, int numRows)
+    {
+        pool = new ForkJoinPool(parallelism);
+        numBands = Math.max(1, Math.min(parallelism * bandsPerThread, numRows / minRowsPerBand));
+    }
+
+    public int getNumBands(){
+        return numBands;
+    }
+
+    public int getParallelism(){
+        return pool.getParallelism();
+    }
+
+    //Computes every band of the desired number of rows (at most the number of rows given to the constructor),
+    //returns the sum of the tallies of the bands
+    public long run(final Rows rows, int numRows){
+        int numBands = Math.max(1, Math.min(this.numBands, numRows));
+        final long tallies[] = new long[numBands];
+        final RecursiveAction tasks[] = new RecursiveAction[numBands];
+        for (int b = 0; b < numBands; b++){
+            final int band = b;
+            final int startRow = (int) ((long) numRows * b / numBands);
+            final int endRow = (int) ((long) numRows * (b + 1) / numBands);
+            tasks[b] = new RecursiveAction() {
+                @Override
+                protected void compute(){
+                    tallies[band] = rows.computeRows(band, startRow, endRow);
+                }
+            };
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute(){
+                invokeAll(tasks);
+            }
+        });
+
+        //Merge the tallies in band order
+        long total = 0;
+        for (int b = 0; b < numBands; b++){
+            total += tallies[b];
+        }
+        return total;
+    }
+
+    //Stops the threads of the pool
+    public void shutdown(){
+        pool.shutdown();
+    }
+}
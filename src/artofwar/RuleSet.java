@@ -0,0 +1,181 @@
+/*
+ * The rules deciding the next state of a cell, compiled into a lookup table so the engines
+ * apply them without branching on the state or the counts of a cell. The rules can be read
+ * from a properties file, so variants can be tried without changing the code:
+ *
+ *   survive=3,4,5        numbers of friendly neighbours a soldier survives with
+ *   maxEnemies=2         most enemy neighbours a soldier survives with
+ *   baseMaxEnemies=2     most enemy neighbours a base cell survives with
+ *   birth=3              numbers of neighbours of one army that recruit a dead cell into it
+ *   baseBirth=1          numbers of bases of one army that recruit a dead cell with no enemy neighbours
+ *
+ * Left out keys keep the rules of the game (shown above). The army with the player's cells
+ * is tried first when both could recruit a cell. Dead cells with no living neighbours always
+ * stay dead (birth and baseBirth start at 1), which the engines rely on to skip empty areas.
+ */
+package artofwar;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class RuleSet
+{
+    //Counts of the 3x3 area around a cell (including the cell) are packed 4 bits per state: player cells in
+    //bits 0-3, computer cells in bits 4-7, player bases in bits 8-11 and computer bases in bits 12-15
+    static public final int stateShift = 16; //The table is indexed by (state << stateShift) | packed counts
+    static private final int numStates = 5; //Number of possible states of a cell
+
+    static public final RuleSet STANDARD = new RuleSet(counts(3, 4, 5), 2, 2, counts(3), counts(1));
+
+    private final boolean survive[]; //survive[n] is true if a soldier with n friendly neighbours survives
+    private final int maxEnemies;
+    private final int baseMaxEnemies;
+    private final boolean birth[]; //birth[n] is true if n neighbours of one army recruit a dead cell
+    private final boolean baseBirth[]; //baseBirth[n] is true if n bases of one army recruit a dead cell
+    private final byte table[]; //Next state of every state and packed counts
+
+    public RuleSet(boolean survive[], int maxEnemies, int baseMaxEnemies, boolean birth[], boolean baseBirth[])
+    {
+        if (birth[0] || baseBirth[0]){
+            throw new IllegalArgumentException("Dead cells with no neighbours must stay dead");
+        }
+        this.survive = survive.clone();
+        this.maxEnemies = maxEnemies;
+        this.baseMaxEnemies = baseMaxEnemies;
+        this.birth = birth.clone();
+        this.baseBirth = baseBirth.clone();
+
+        table = new byte[numStates << stateShift];
+        for (int state = 0; state < numStates; state++){
+            for (int counts = 0; counts < 1 << stateShift; counts++){
+                table[(state << stateShift) | counts] = (byte) apply(state, counts & 15, (counts >> 4) & 15,
+                        (counts >> 8) & 15, (counts >> 12) & 15);
+            }
+        }
+    }
+
+    //Returns the flags of a list of neighbour counts, e.g. counts(3, 4, 5)
+    static private boolean[] counts(int... values){
+        boolean flags[] = new boolean[9];
+        for (int value : values){
+            flags[value] = true;
+        }
+        return flags;
+    }
+
+    //Reads the rules from a properties file (see above), throws an IOException naming the first invalid key
+    public static RuleSet load(Path file) throws IOException{
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+            properties.load(reader);
+        }
+        for (String key : properties.stringPropertyNames()){
+            if (!Arrays.asList("survive", "maxEnemies", "baseMaxEnemies", "birth", "baseBirth").contains(key)){
+                throw new IOException(file + ": unknown rule " + key);
+            }
+        }
+        try {
+            return new RuleSet(readCounts(properties, "survive", STANDARD.survive),
+                    readNumber(properties, "maxEnemies", STANDARD.maxEnemies),
+                    readNumber(properties, "baseMaxEnemies", STANDARD.baseMaxEnemies),
+                    readCounts(properties, "birth", STANDARD.birth),
+                    readCounts(properties, "baseBirth", STANDARD.baseBirth));
+        }
+        catch (IllegalArgumentException e){
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    //Reads a comma separated list of neighbour counts (0 to 8)
+    static private boolean[] readCounts(Properties properties, String key, boolean standard[]){
+        String value = properties.getProperty(key);
+        if (value == null){
+            return standard;
+        }
+        boolean flags[] = new boolean[9];
+        for (String count : value.split(",")){
+            if (!count.trim().isEmpty()){
+                flags[checkCount(key, count)] = true;
+            }
+        }
+        return flags;
+    }
+
+    //Reads a single neighbour count (0 to 8)
+    static private int readNumber(Properties properties, String key, int standard){
+        String value = properties.getProperty(key);
+        return value == null ? standard : checkCount(key, value);
+    }
+
+    static private int checkCount(String key, String value){
+        try {
+            int count = Integer.parseInt(value.trim());
+            if (count >= 0 && count <= 8){
+                return count;
+            }
+        }
+        catch (NumberFormatException e){
+            //Reported below
+        }
+        throw new IllegalArgumentException(key + " must be a number of neighbours from 0 to 8: " + value);
+    }
+
+    //Applies the rules to a cell, given the number of cells of each state in the 3x3 area around it
+    //(including the cell itself)
+    private int apply(int state, int players, int computers, int playerBases, int computerBases){
+        if (state == GameEngine.PLAYER || state == GameEngine.COMPUTER){
+            int numOwnNeighbors = (state == GameEngine.PLAYER ? players : computers) - 1;
+            int numEnemyNeighbors = state == GameEngine.PLAYER ? computers : players;
+            //Too lonely, too crowded or attacked by too many enemies
+            if (numOwnNeighbors < 0 || numOwnNeighbors > 8 || !survive[numOwnNeighbors] || numEnemyNeighbors > maxEnemies){
+                return GameEngine.DEAD;
+            }
+            return state;
+        }
+        else if (state == GameEngine.PLAYER_BASE){
+            return computers > baseMaxEnemies ? GameEngine.DEAD : state;
+        }
+        else if (state == GameEngine.COMPUTER_BASE){
+            return players > baseMaxEnemies ? GameEngine.DEAD : state;
+        }
+        //A dead cell is recruited by enough neighbours of an army, or by its bases if no enemy is beside it
+        if (isSet(birth, players) || (isSet(baseBirth, playerBases) && computers == 0)){
+            return GameEngine.PLAYER;
+        }
+        else if (isSet(birth, computers) || (isSet(baseBirth, computerBases) && players == 0)){
+            return GameEngine.COMPUTER;
+        }
+        return GameEngine.DEAD;
+    }
+
+    static private boolean isSet(boolean flags[], int count){
+        return count < flags.length && flags[count];
+    }
+
+    //Returns the lookup table: the next state of a cell is table[(state << stateShift) | counts], counts being
+    //the packed counts of the 3x3 area around the cell
+    public byte[] getTable(){
+        return table;
+    }
+
+    //Returns the next state of a cell from its state and the packed counts of the 3x3 area around it
+    public int nextState(int state, int counts){
+        return table[(state << stateShift) | counts];
+    }
+
+    //Returns true if these are the rules of the game
+    public boolean isStandard(){
+        return Arrays.equals(survive, STANDARD.survive) && maxEnemies == STANDARD.maxEnemies
+                && baseMaxEnemies == STANDARD.baseMaxEnemies && Arrays.equals(birth, STANDARD.birth)
+                && Arrays.equals(baseBirth, STANDARD.baseBirth);
+    }
+}
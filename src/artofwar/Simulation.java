@@ -0,0 +1,35 @@
+/*
+ * Common interface of the engines that can step The Art of War, so that the headless
+ * runner (and anything else that only needs the rules) can swap between grid backends.
+ */
+package artofwar;
+
+/**
+ *
+ * @author mayba4372
+ */
+public interface Simulation
+{
+    public int getWidth();
+
+    public int getHeight();
+
+    //Returns the state of a cell (see the constants in GameEngine)
+    public int getState(int x, int y);
+
+    //Copies the state of every cell into dest, row by row (cell (x, y) is at y*width + x)
+    public void copyStates(int dest[]);
+
+    //Returns the number of generations computed so far
+    public int getGeneration();
+
+    //Returns 0 while the game is running, otherwise the winning player (1 or 2)
+    public int getWinner();
+
+    //Computes and plants a single generation, returns false if the game had already ended
+    public boolean step();
+
+    //Computes up to the desired number of generations (stops early if the game ends)
+    //Returns the number of generations that were actually computed
+    public int step(int numGenerations);
+}
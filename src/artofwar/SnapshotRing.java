@@ -0,0 +1,119 @@
+/*
+ * Hands generations from the simulation thread to the event dispatch thread. A few
+ * snapshots are allocated once and reused: the simulation writes the newest generation
+ * into a slot the screen is not reading, and the screen always takes the newest one.
+ * A new snapshot is only taken once the screen has drawn the last one, so generations
+ * computed faster than they can be drawn are skipped instead of slowing the game down.
+ */
+package artofwar;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class SnapshotRing
+{
+    //The cells of one generation
+    static public class Snapshot
+    {
+        private final int states[]; //Cell states stored row by row (cell (x, y) is at y*width + x)
+        private int generation; //Generation the states belong to
+
+        private Snapshot(int numCells)
+        {
+            states = new int[numCells];
+        }
+
+        public int[] getStates(){
+            return states;
+        }
+
+        public int getGeneration(){
+            return generation;
+        }
+    }
+
+    static private final int numSlots = 3; //One being written, one being read and the newest one
+
+    private final Snapshot slots[] = new Snapshot[numSlots];
+    private int newest = -1; //Slot holding the newest generation (-1 if nothing was published)
+    private int reading = -1; //Slot being drawn by the screen (-1 if none)
+    private boolean newestTaken = true; //Whether the screen already took the newest generation
+    private long numPublished = 0; //Number of generations published
+    private long numSkipped = 0; //Number of generations computed while the screen was still busy
+
+    public SnapshotRing(int numCells)
+    {
+        for (int i = 0; i < numSlots; i++){
+            slots[i] = new Snapshot(numCells);
+        }
+    }
+
+    //Returns true if the screen took the last published generation, so a new one should be published
+    //Generations computed while this is false are skipped (counted as dropped frames)
+    public synchronized boolean wantsSnapshot(){
+        if (!newestTaken){
+            numSkipped++;
+        }
+        return newestTaken;
+    }
+
+    //Copies the current generation of the simulation into a free slot and makes it the newest one
+    public void publish(Simulation simulation){
+        Snapshot snapshot;
+        synchronized (this){
+            //Any slot that is neither the newest nor being read is free
+            int free = 0;
+            while (free == newest || free == reading){
+                free++;
+            }
+            snapshot = slots[free];
+        }
+        //Only the simulation thread writes, so the copy can happen outside of the lock
+        simulation.copyStates(snapshot.states);
+        snapshot.generation = simulation.getGeneration();
+        synchronized (this){
+            for (int i = 0; i < numSlots; i++){
+                if (slots[i] == snapshot){
+                    newest = i;
+                }
+            }
+            newestTaken = false;
+            numPublished++;
+        }
+    }
+
+    //Returns the newest generation (which must be given back with release()), or null if it was already taken
+    public synchronized Snapshot takeNewest(){
+        if (newestTaken || newest < 0){
+            return null;
+        }
+        newestTaken = true;
+        reading = newest;
+        return slots[reading];
+    }
+
+    //Returns the newest generation even if it was already taken (which must be given back with release()),
+    //or null if nothing was published, so the screen can draw it again after a zoom or move
+    public synchronized Snapshot takeLatest(){
+        if (newest < 0){
+            return null;
+        }
+        newestTaken = true;
+        reading = newest;
+        return slots[reading];
+    }
+
+    //Gives back the generation returned by takeNewest() or takeLatest() once it has been drawn
+    public synchronized void release(){
+        reading = -1;
+    }
+
+    public synchronized long getNumPublished(){
+        return numPublished;
+    }
+
+    public synchronized long getNumSkipped(){
+        return numSkipped;
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Computes the next generation of the rows of a TiledEngine tile from the tile and the one
+ * cell halo around it, for kernels that are built separately from the game. The kernel built
+ * on the Vector API (vector/artofwar/vector/VectorTileKernel) needs a newer Java than the game
+ * targets, so it is compiled by its own Ant target and loaded by name when it is on the class
+ * path and the jdk.incubator.vector module is present (see TiledEngine.useVectorKernel).
+ * Kernels apply the rules of the game, the engine computes other rules with its own code.
+ */
+package artofwar;
+
+/**
+ *
+ * @author mayba4372
+ */
+public interface TileKernel
+{
+    //Writes the next generation of row y of the tile into row[0] to row[width-1]. halo holds the tile with the
+    //halo around it row by row, haloSize cells per row (row y of the tile is row y+1 of the halo, and cell x
+    //of it is cell x+1). Returns the number of living cells written << 40 | the number of player base cells
+    //in the row << 20 | the number of computer base cells in the row
+    long computeRow(byte halo[], int haloSize, int y, int width, byte row[]);
+}
@@ -0,0 +1,632 @@
+/*
+ * Off-heap backend for The Art of War, for grids too big to keep in int arrays on the heap.
+ * The grid is split into tiles of tileSize x tileSize cells stored one byte per cell in
+ * ByteBuffers outside of the heap: direct buffers, or a file mapped into memory so the
+ * operating system only pages in the tiles that are used. Each generation is computed tile
+ * by tile: the tile and a one cell halo around it (copied from the edges of the 8 tiles
+ * around it) are read into a small array, and the next generation of the tile is written
+ * back to the other set of tiles. Tiles with no living cell in or around them are skipped
+ * without being read, so the empty parts of a sparse file are never touched.
+ */
+package artofwar;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class TiledEngine implements Simulation
+{
+    static private final int tileShift = 8; //Tiles are 2^tileShift cells wide and high
+    static private final int tileSize = 1 << tileShift;
+    static private final int tileBytes = tileSize * tileSize; //One byte per cell
+    static private final int tilesPerBuffer = (1 << 30) / tileBytes; //A ByteBuffer (or mapping) holds at most 1 GB
+    static private final int haloSize = tileSize + 2; //Width and height of a tile with its halo
+    static private final byte zeros[] = new byte[tileSize]; //A row of dead cells
+    static private final int computerBaseTries = 64; //Random spots tried by plantComputerBase (as in GameEngine)
+    static private final int computerBaseDistance = 15; //Fewest cells between the computer's base and the player's
+    //Packed counts added for a cell of each state (player, computer, player base, computer base in 4 bits each,
+    //the packing the table of the RuleSet is indexed by)
+    static private final int countIncrement[] = {0, 1, 1 << 4, 1 << 8, 1 << 12};
+
+    private final int numCellsX; //Width of grid
+    private final int numCellsY; //Height of grid
+    private final int numTilesX; //Number of tiles across the grid
+    private final int numTilesY; //Number of tiles down the grid
+    private final int numTiles;
+
+    //Tiles of the two generations (buffers[cur] holds the current one): tile t is at byte
+    //(t % tilesPerBuffer) * tileBytes of buffers[gen][t / tilesPerBuffer], cell (x, y) of a tile at y*tileSize + x
+    private final ByteBuffer buffers[][];
+    private final int live[][]; //Number of living cells (of any state) in each tile of both generations
+    private int cur = 0; //Which of the two generations is the current one
+
+    //Scratch space of each band of tile rows (a single band when the generations are computed on the calling thread)
+    private Scratch scratch[];
+    //Bands of tile rows computed in parallel (null when the generations are computed on the calling thread)
+    private RowBands bands;
+    //Computes a band of tile rows for the RowBands
+    private final RowBands.Rows bandRows = new RowBands.Rows() {
+        @Override
+        public long computeRows(int band, int startRow, int endRow){
+            return computeTileRows(startRow, endRow, scratch[band]);
+        }
+    };
+
+    private int generation = 0; //Number of generations computed so far
+    private int winner = 0; //0 while the game is running, otherwise the winning player (1 or 2)
+    private RuleSet rules = RuleSet.STANDARD; //Rules applied to every cell
+    private boolean standardRules = true; //Whether the rules are the rules of the game (the ones kernels apply)
+    private TileKernel kernel; //Computes the rows of the tiles under the rules of the game (null to use the table)
+
+    //Arrays and views of the buffers used to compute one tile at a time
+    private class Scratch
+    {
+        final byte halo[] = new byte[haloSize * haloSize]; //The tile and the cells around it
+        final int columnCounts[] = new int[haloSize]; //Packed counts of the 3 rows around the row being computed
+        final byte row[] = new byte[tileSize]; //Next generation of the row being computed
+        final ByteBuffer views[][] = new ByteBuffer[2][]; //Own views of the buffers, for reading and writing rows
+
+        Scratch()
+        {
+            for (int gen = 0; gen < 2; gen++){
+                views[gen] = new ByteBuffer[buffers[gen].length];
+                for (int b = 0; b < buffers[gen].length; b++){
+                    views[gen][b] = buffers[gen][b].duplicate();
+                }
+            }
+        }
+    }
+
+    /*
+     * Creates a grid of the desired size where every cell is dead, kept in direct buffers if file is null,
+     * otherwise in the file (which is emptied first) mapped into memory
+     */
+    public TiledEngine(int numCellsX, int numCellsY, Path file) throws IOException
+    {
+        this.numCellsX = numCellsX;
+        this.numCellsY = numCellsY;
+        numTilesX = (numCellsX + tileSize - 1) >> tileShift;
+        numTilesY = (numCellsY + tileSize - 1) >> tileShift;
+        if ((long) numTilesX * numTilesY > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("Grid is too large: " + numCellsX + "x" + numCellsY);
+        }
+        numTiles = numTilesX * numTilesY;
+        live = new int[2][numTiles];
+
+        int numBuffers = (numTiles + tilesPerBuffer - 1) / tilesPerBuffer;
+        buffers = new ByteBuffer[2][numBuffers];
+        if (file == null){
+            for (int gen = 0; gen < 2; gen++){
+                for (int b = 0; b < numBuffers; b++){
+                    buffers[gen][b] = ByteBuffer.allocateDirect(bufferBytes(b));
+                }
+            }
+        }
+        else{
+            //Both generations are kept in the file one after the other. Emptying the file and setting its
+            //length makes a sparse file, so only the parts that are written take space on the disk.
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")){
+                raf.setLength(0);
+                long generationBytes = (long) numTiles * tileBytes;
+                raf.setLength(2 * generationBytes);
+                FileChannel channel = raf.getChannel();
+                for (int gen = 0; gen < 2; gen++){
+                    for (int b = 0; b < numBuffers; b++){
+                        long offset = gen * generationBytes + (long) b * tilesPerBuffer * tileBytes;
+                        //The mappings stay valid after the channel is closed
+                        buffers[gen][b] = channel.map(FileChannel.MapMode.READ_WRITE, offset, bufferBytes(b));
+                    }
+                }
+            }
+        }
+        scratch = new Scratch[] {new Scratch()};
+    }
+
+    //Size in bytes of the desired buffer (the last one only holds the tiles that are left)
+    private int bufferBytes(int b){
+        return Math.min(tilesPerBuffer, numTiles - b * tilesPerBuffer) * tileBytes;
+    }
+
+    @Override
+    public int getWidth(){
+        return numCellsX;
+    }
+
+    @Override
+    public int getHeight(){
+        return numCellsY;
+    }
+
+    @Override
+    public int getGeneration(){
+        return generation;
+    }
+
+    @Override
+    public int getWinner(){
+        return winner;
+    }
+
+    //Number of tiles the grid is split into
+    public int getNumTiles(){
+        return numTiles;
+    }
+
+    //Number of tiles holding at least one living cell in the current generation
+    public int getNumLiveTiles(){
+        int count = 0;
+        for (int tile = 0; tile < numTiles; tile++){
+            if (live[cur][tile] > 0){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //Returns the buffer of the desired generation holding the tile of cell (x, y)
+    private ByteBuffer bufferOf(int gen, int x, int y){
+        return buffers[gen][tileOf(x, y) / tilesPerBuffer];
+    }
+
+    private int tileOf(int x, int y){
+        return (y >> tileShift) * numTilesX + (x >> tileShift);
+    }
+
+    //Returns the position of cell (x, y) in the buffer holding its tile
+    private int positionOf(int x, int y){
+        return (tileOf(x, y) % tilesPerBuffer) * tileBytes + ((y & (tileSize - 1)) << tileShift) + (x & (tileSize - 1));
+    }
+
+    @Override
+    public int getState(int x, int y){
+        return bufferOf(cur, x, y).get(positionOf(x, y));
+    }
+
+    //Copies the state of every cell into dest (only for grids with fewer than 2^31 cells)
+    @Override
+    public void copyStates(int dest[]){
+        for (int y = 0; y < numCellsY; y++){
+            for (int x = 0; x < numCellsX; x++){
+                dest[y * numCellsX + x] = getState(x, y);
+            }
+        }
+    }
+
+    public void setState(int x, int y, int state){
+        int old = getState(x, y);
+        bufferOf(cur, x, y).put(positionOf(x, y), (byte) state);
+        if (old == GameEngine.DEAD && state != GameEngine.DEAD){
+            live[cur][tileOf(x, y)]++;
+        }
+        else if (old != GameEngine.DEAD && state == GameEngine.DEAD){
+            live[cur][tileOf(x, y)]--;
+        }
+    }
+
+    //Plants the player's or computer's base centered on the coordinates, the same way as GameEngine.plantBase
+    //Returns -1 if the position of the base is not allowed (too close to the border), otherwise 0
+    public int plantBase(int centerX, int centerY, int state){
+        if (centerX <= 0 || centerY <= 0 || centerX >= numCellsX-1 || centerY >= numCellsY-1){
+            return -1;
+        }
+        int base = state == GameEngine.PLAYER ? GameEngine.PLAYER_BASE : GameEngine.COMPUTER_BASE;
+        for (int y = centerY-1; y <= centerY+1; y++){
+            for (int x = centerX-1; x <= centerX+1; x++){
+                //The 4 corners are base cells, the others are part of the army
+                setState(x, y, x != centerX && y != centerY ? base : state);
+            }
+        }
+        return 0;
+    }
+
+    //Plants the computer's base at a random spot at least 15 units away from the player's base, choosing the
+    //spots the same way as GameEngine.plantComputerBase (so a seed gives the same board as the grid engine):
+    //a few random spots, then one among every legal spot
+    //Returns false if there is no legal spot (then no base is planted)
+    public boolean plantComputerBase(Random rand){
+        int randX = 1 + rand.nextInt(numCellsX-3);
+        int randY = 1 + rand.nextInt(numCellsY-3);
+        for (int tries = 1; countCells(randX, randY, GameEngine.PLAYER_BASE, computerBaseDistance) != 0; tries++){
+            if (tries == computerBaseTries){
+                int spot[] = chooseComputerBaseSpot(rand);
+                if (spot == null){
+                    return false;
+                }
+                randX = spot[0];
+                randY = spot[1];
+                break;
+            }
+            randX = 1 + rand.nextInt(numCellsX-3);
+            randY = 1 + rand.nextInt(numCellsY-3);
+        }
+        plantBase(randX, randY, GameEngine.COMPUTER);
+        return true;
+    }
+
+    //Chooses one of the legal spots for the computer's base with the same draw as GameEngine (the spots listed
+    //by GameEngine.listComputerBaseSpots, in row order), returns {x, y}, or null if there is none
+    //The legal spots of each row are counted between the columns the player's base cells rule out, so they
+    //never have to be listed (there can be more of them than fit in an array)
+    private int[] chooseComputerBaseSpot(Random rand){
+        long bases[] = findCells(GameEngine.PLAYER_BASE);
+        int columns[] = new int[bases.length]; //Scratch space for the columns of the base cells near a row
+        long numSpots = 0;
+        for (int y = 1; y <= numCellsY - 3; y++){
+            numSpots += rowSpots(bases, y, columns, -1);
+        }
+        if (numSpots == 0){
+            return null;
+        }
+        long chosen = rand.nextInt((int) Math.min(numSpots, Integer.MAX_VALUE));
+        for (int y = 1; y <= numCellsY - 3; y++){
+            long inRow = rowSpots(bases, y, columns, -1);
+            if (chosen < inRow){
+                return new int[] {(int) rowSpots(bases, y, columns, chosen), y};
+            }
+            chosen -= inRow;
+        }
+        return null;
+    }
+
+    //Returns the number of legal spots for the computer's base in row y (columns 1 to numCellsX-3), or the
+    //column of the spot with the desired number (counting from 0) if it is not negative
+    //bases holds the player's base cells (see findCells)
+    private long rowSpots(long bases[], int y, int columns[], long spot){
+        //Columns of the base cells close enough to the row, from left to right
+        int first = lowerBound(bases, (long) Math.max(y - computerBaseDistance, 0) << 32);
+        int numColumns = 0;
+        for (int i = first; i < bases.length && (int) (bases[i] >>> 32) <= y + computerBaseDistance; i++){
+            columns[numColumns++] = (int) bases[i];
+        }
+        Arrays.sort(columns, 0, numColumns);
+
+        //Count the columns between the ones each base cell rules out
+        int minX = 1, maxX = numCellsX - 3;
+        int x = minX; //First column that is not ruled out yet
+        long count = 0;
+        for (int i = 0; i < numColumns && columns[i] - computerBaseDistance <= maxX; i++){
+            int start = columns[i] - computerBaseDistance;
+            if (start > x){
+                if (spot >= 0 && spot < count + start - x){
+                    return x + spot - count;
+                }
+                count += start - x;
+            }
+            x = Math.max(x, columns[i] + computerBaseDistance + 1);
+        }
+        if (x <= maxX){
+            if (spot >= 0 && spot < count + maxX - x + 1){
+                return x + spot - count;
+            }
+            count += maxX - x + 1;
+        }
+        return count;
+    }
+
+    //Returns the index of the first value in the sorted values that is at least key
+    static private int lowerBound(long values[], long key){
+        int low = 0, high = values.length;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key){
+                low = mid + 1;
+            }
+            else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    //Finds every cell of the desired state (only the tiles holding living cells are read), returns them sorted
+    //by row and then by column, each as (long) y << 32 | x
+    private long[] findCells(int state){
+        long cells[] = new long[16];
+        int numCells = 0;
+        for (int t = 0; t < numTiles; t++){
+            if (live[cur][t] == 0){
+                continue;
+            }
+            int startX = (t % numTilesX) << tileShift, startY = (t / numTilesX) << tileShift;
+            for (int y = startY; y < Math.min(startY + tileSize, numCellsY); y++){
+                for (int x = startX; x < Math.min(startX + tileSize, numCellsX); x++){
+                    if (getState(x, y) == state){
+                        if (numCells == cells.length){
+                            cells = Arrays.copyOf(cells, numCells * 2);
+                        }
+                        cells[numCells++] = (long) y << 32 | x;
+                    }
+                }
+            }
+        }
+        cells = Arrays.copyOf(cells, numCells);
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    //Counts the cells of the desired state at most distance cells away from (x, y) horizontally and vertically
+    public int countCells(int x, int y, int state, int distance){
+        int count = 0;
+        for (int row = Math.max(y - distance, 0); row <= Math.min(y + distance, numCellsY - 1); row++){
+            for (int col = Math.max(x - distance, 0); col <= Math.min(x + distance, numCellsX - 1); col++){
+                if (getState(col, row) == state){
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    //Sets the rules applied from the next generation on
+    public void setRules(RuleSet rules){
+        this.rules = rules;
+        standardRules = rules.isStandard();
+    }
+
+    //Computes the tiles with the kernel built on the Vector API (with the rules of the game, other rules are
+    //still computed with the table), returns false if the kernel is not on the class path or the
+    //jdk.incubator.vector module is not present (then the table keeps being used)
+    public boolean useVectorKernel(){
+        try {
+            kernel = (TileKernel) Class.forName("artofwar.vector.VectorTileKernel").newInstance();
+            return true;
+        }
+        catch (ClassNotFoundException | InstantiationException | IllegalAccessException | LinkageError e){
+            //LinkageError: the kernel is there but the module is not
+            return false;
+        }
+    }
+
+    //Sets the number of threads used to compute each generation (1 computes them on the calling thread)
+    //Each thread computes whole rows of tiles, so the generations are identical no matter how many are used
+    public void setParallelism(int parallelism){
+        if (bands != null){
+            bands.shutdown();
+            bands = null;
+        }
+        scratch = new Scratch[] {scratch[0]};
+        if (parallelism > 1){
+            bands = new RowBands(parallelism, numTilesY);
+            scratch = new Scratch[bands.getNumBands()];
+            for (int band = 0; band < scratch.length; band++){
+                scratch[band] = new Scratch();
+            }
+        }
+    }
+
+    public int getParallelism(){
+        return bands == null ? 1 : bands.getParallelism();
+    }
+
+    //Applies the rules of The Art of War to every tile, writing the next generation into the other set of tiles.
+    //Sets the winner if either player has no bases left.
+    public void computeNextGeneration(){
+        long bases;
+        if (bands == null){
+            bases = computeTileRows(0, numTilesY, scratch[0]);
+        }
+        else{
+            bases = bands.run(bandRows, numTilesY);
+        }
+        int bases1 = (int) (bases >>> 32);
+        int bases2 = (int) bases;
+
+        //If there are no user bases, then the computer (player 2) wins
+        if (bases1 == 0){
+            winner = 2;
+        }
+        //If there are no computer bases, then the user (player 1) wins
+        else if (bases2 == 0){
+            winner = 1;
+        }
+    }
+
+    //Computes the tile rows startRow (inclusive) to endRow (exclusive), returns the base cells found in them
+    //as ((long) bases1 << 32) + bases2
+    private long computeTileRows(int startRow, int endRow, Scratch scratch){
+        long bases = 0;
+        for (int ty = startRow; ty < endRow; ty++){
+            for (int tx = 0; tx < numTilesX; tx++){
+                bases += computeTile(tx, ty, scratch);
+            }
+        }
+        return bases;
+    }
+
+    //Returns true if the tile and the tiles around it have no living cell in the current generation
+    private boolean quiet(int tx, int ty){
+        for (int y = Math.max(ty - 1, 0); y <= Math.min(ty + 1, numTilesY - 1); y++){
+            for (int x = Math.max(tx - 1, 0); x <= Math.min(tx + 1, numTilesX - 1); x++){
+                if (live[cur][y * numTilesX + x] > 0){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    //Computes the next generation of a tile, returns the base cells found in it as ((long) bases1 << 32) + bases2
+    private long computeTile(int tx, int ty, Scratch scratch){
+        int tile = ty * numTilesX + tx;
+        int next = cur ^ 1;
+        ByteBuffer out = scratch.views[next][tile / tilesPerBuffer];
+        int start = (tile % tilesPerBuffer) * tileBytes;
+
+        //Dead cells with no living neighbour stay dead, so the tile only has to be cleared (if it is not yet)
+        if (quiet(tx, ty)){
+            if (live[next][tile] > 0){
+                for (int y = 0; y < tileSize; y++){
+                    out.position(start + (y << tileShift));
+                    out.put(zeros);
+                }
+                live[next][tile] = 0;
+            }
+            return 0;
+        }
+
+        readHalo(tx, ty, scratch);
+        if (kernel != null && standardRules){
+            return computeTileWithKernel(tile, scratch, out, start);
+        }
+        byte halo[] = scratch.halo;
+        int columnCounts[] = scratch.columnCounts;
+        byte row[] = scratch.row;
+        byte table[] = rules.getTable();
+        int width = Math.min(tileSize, numCellsX - (tx << tileShift));
+        int height = Math.min(tileSize, numCellsY - (ty << tileShift));
+        int numLive = 0;
+        int bases1 = 0;
+        int bases2 = 0;
+
+        //Start with the halo rows 0 and 1 (the rows above and at the first row of the tile) in the column counts
+        for (int x = 0; x < haloSize; x++){
+            columnCounts[x] = countIncrement[halo[x]] + countIncrement[halo[haloSize + x]];
+        }
+        for (int y = 0; y < height; y++){
+            //Slide the column counts down so they cover the halo rows y to y+2 (the rows y-1 to y+1 of the tile)
+            int below = (y + 2) * haloSize;
+            for (int x = 0; x < haloSize; x++){
+                columnCounts[x] += countIncrement[halo[below + x]];
+            }
+            if (y > 0){
+                int above = (y - 1) * haloSize;
+                for (int x = 0; x < haloSize; x++){
+                    columnCounts[x] -= countIncrement[halo[above + x]];
+                }
+            }
+
+            int rowStart = (y + 1) * haloSize + 1;
+            int window = columnCounts[0] + columnCounts[1];
+            for (int x = 0; x < width; x++){
+                window += columnCounts[x + 2];
+                int state = halo[rowStart + x];
+                int nextState = table[(state << RuleSet.stateShift) | window];
+                row[x] = (byte) nextState;
+                if (nextState != GameEngine.DEAD){
+                    numLive++;
+                }
+                if (state == GameEngine.PLAYER_BASE){
+                    bases1++;
+                }
+                else if (state == GameEngine.COMPUTER_BASE){
+                    bases2++;
+                }
+                window -= columnCounts[x];
+            }
+            out.position(start + (y << tileShift));
+            out.put(row, 0, width);
+        }
+        live[next][tile] = numLive;
+        return ((long) bases1 << 32) + bases2;
+    }
+
+    //Computes the next generation of a tile (whose halo was read) row by row with the kernel
+    private long computeTileWithKernel(int tile, Scratch scratch, ByteBuffer out, int start){
+        int tx = tile % numTilesX, ty = tile / numTilesX;
+        int width = Math.min(tileSize, numCellsX - (tx << tileShift));
+        int height = Math.min(tileSize, numCellsY - (ty << tileShift));
+        int numLive = 0;
+        long bases = 0;
+        for (int y = 0; y < height; y++){
+            long counts = kernel.computeRow(scratch.halo, haloSize, y, width, scratch.row);
+            numLive += (int) (counts >>> 40);
+            bases += ((counts >>> 20) & 0xFFFFF) << 32 | (counts & 0xFFFFF);
+            out.position(start + (y << tileShift));
+            out.put(scratch.row, 0, width);
+        }
+        live[cur ^ 1][tile] = numLive;
+        return bases;
+    }
+
+    //Copies the current generation of a tile into the middle of the halo array, and the edges of the 8 tiles
+    //around it into the border of the halo (the border is left dead outside of the grid and next to empty tiles)
+    private void readHalo(int tx, int ty, Scratch scratch){
+        byte halo[] = scratch.halo;
+        java.util.Arrays.fill(halo, (byte) 0);
+        ByteBuffer views[] = scratch.views[cur];
+        int last = tileSize - 1;
+
+        //The tile itself
+        int tile = ty * numTilesX + tx;
+        ByteBuffer view = views[tile / tilesPerBuffer];
+        int start = (tile % tilesPerBuffer) * tileBytes;
+        for (int y = 0; y < tileSize; y++){
+            view.position(start + (y << tileShift));
+            view.get(halo, (y + 1) * haloSize + 1, tileSize);
+        }
+
+        //The last row of the tiles above and the first row of the tiles below (with the corners)
+        for (int dy = -1; dy <= 1; dy += 2){
+            int ny = ty + dy;
+            int haloRow = dy < 0 ? 0 : haloSize - 1;
+            int tileRow = dy < 0 ? last : 0;
+            if (ny < 0 || ny >= numTilesY){
+                continue;
+            }
+            for (int dx = -1; dx <= 1; dx++){
+                int nx = tx + dx;
+                int neighbour = ny * numTilesX + nx;
+                if (nx < 0 || nx >= numTilesX || live[cur][neighbour] == 0){
+                    continue;
+                }
+                view = views[neighbour / tilesPerBuffer];
+                int rowStart = (neighbour % tilesPerBuffer) * tileBytes + (tileRow << tileShift);
+                if (dx == 0){
+                    view.position(rowStart);
+                    view.get(halo, haloRow * haloSize + 1, tileSize);
+                }
+                else{
+                    halo[haloRow * haloSize + (dx < 0 ? 0 : haloSize - 1)] = view.get(rowStart + (dx < 0 ? last : 0));
+                }
+            }
+        }
+
+        //The last column of the tile to the left and the first column of the tile to the right
+        for (int dx = -1; dx <= 1; dx += 2){
+            int nx = tx + dx;
+            int neighbour = ty * numTilesX + nx;
+            if (nx < 0 || nx >= numTilesX || live[cur][neighbour] == 0){
+                continue;
+            }
+            view = views[neighbour / tilesPerBuffer];
+            int column = (neighbour % tilesPerBuffer) * tileBytes + (dx < 0 ? last : 0);
+            int haloColumn = dx < 0 ? 0 : haloSize - 1;
+            for (int y = 0; y < tileSize; y++){
+                halo[(y + 1) * haloSize + haloColumn] = view.get(column + (y << tileShift));
+            }
+        }
+    }
+
+    //Makes the next generation's tiles the current ones
+    public void plantNextGeneration(){
+        cur ^= 1;
+    }
+
+    @Override
+    public boolean step(){
+        if (winner != 0){
+            return false;
+        }
+        computeNextGeneration();
+        plantNextGeneration();
+        generation++;
+        return true;
+    }
+
+    @Override
+    public int step(int numGenerations){
+        int computed = 0;
+        while (computed < numGenerations && step()){
+            computed++;
+        }
+        return computed;
+    }
+}
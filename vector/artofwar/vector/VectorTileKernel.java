@@ -0,0 +1,111 @@
+/*
+ * TileKernel built on the Vector API (the jdk.incubator.vector module), which applies the rules
+ * of the game to as many cells at once as the widest vectors of the processor hold. The cells of
+ * each state around a run of cells are counted by comparing the 9 shifted rows of the halo with
+ * the state and adding 1 to the lanes that match, then the rules are applied with masks instead
+ * of looking the next state up in a table. The cells left over at the end of a row (fewer than a
+ * vector) are computed one at a time with the table of the rules.
+ * Compiled separately from the game (it needs Java 17): ant vector-jar, then run with
+ * --add-modules jdk.incubator.vector and ArtOfWar-vector.jar on the class path.
+ */
+package artofwar.vector;
+
+import artofwar.GameEngine;
+import artofwar.RuleSet;
+import artofwar.TileKernel;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ *
+ * @author mayba4372
+ */
+public class VectorTileKernel implements TileKernel
+{
+    static private final VectorSpecies<Byte> species = ByteVector.SPECIES_PREFERRED;
+    static private final byte DEAD = GameEngine.DEAD;
+    static private final byte PLAYER = GameEngine.PLAYER;
+    static private final byte COMPUTER = GameEngine.COMPUTER;
+    static private final byte PLAYER_BASE = GameEngine.PLAYER_BASE;
+    static private final byte COMPUTER_BASE = GameEngine.COMPUTER_BASE;
+    //Packed counts added for a cell of each state, the packing the table of the RuleSet is indexed by
+    static private final int countIncrement[] = {0, 1, 1 << 4, 1 << 8, 1 << 12};
+
+    private final byte table[] = RuleSet.STANDARD.getTable();
+
+    @Override
+    public long computeRow(byte halo[], int haloSize, int y, int width, byte row[]){
+        ByteVector zero = ByteVector.zero(species);
+        ByteVector one = ByteVector.broadcast(species, (byte) 1);
+        int middle = (y + 1) * haloSize + 1; //Cell 0 of the row in the halo
+        long numLive = 0, bases1 = 0, bases2 = 0;
+        int x = 0;
+        for (; x <= width - species.length(); x += species.length()){
+            //Count the cells of each state in the 3x3 area around each cell (including the cell)
+            ByteVector players = zero, computers = zero, playerBases = zero, computerBases = zero;
+            for (int dy = 0; dy < 3; dy++){
+                for (int dx = 0; dx < 3; dx++){
+                    ByteVector cells = ByteVector.fromArray(species, halo, (y + dy) * haloSize + x + dx);
+                    players = players.add(one, cells.eq(PLAYER));
+                    computers = computers.add(one, cells.eq(COMPUTER));
+                    playerBases = playerBases.add(one, cells.eq(PLAYER_BASE));
+                    computerBases = computerBases.add(one, cells.eq(COMPUTER_BASE));
+                }
+            }
+            ByteVector states = ByteVector.fromArray(species, halo, middle + x);
+            VectorMask<Byte> fewPlayers = players.compare(VectorOperators.LE, 2);
+            VectorMask<Byte> fewComputers = computers.compare(VectorOperators.LE, 2);
+
+            //Soldiers with 3 to 5 friendly neighbours (4 to 6 counting themselves) and at most 2 enemies survive,
+            //base cells survive at most 2 enemies
+            VectorMask<Byte> player = states.eq(PLAYER).and(players.compare(VectorOperators.GE, 4))
+                    .and(players.compare(VectorOperators.LE, 6)).and(fewComputers);
+            VectorMask<Byte> computer = states.eq(COMPUTER).and(computers.compare(VectorOperators.GE, 4))
+                    .and(computers.compare(VectorOperators.LE, 6)).and(fewPlayers);
+            VectorMask<Byte> playerBase = states.eq(PLAYER_BASE);
+            VectorMask<Byte> computerBase = states.eq(COMPUTER_BASE);
+
+            //Dead cells are recruited by 3 soldiers of an army, or by 1 of its base cells if no enemy is beside them
+            //(the player is tried first)
+            VectorMask<Byte> dead = states.eq(DEAD);
+            VectorMask<Byte> playerBirth = dead.and(players.eq((byte) 3)
+                    .or(playerBases.eq((byte) 1).and(computers.eq((byte) 0))));
+            VectorMask<Byte> computerBirth = dead.and(playerBirth.not()).and(computers.eq((byte) 3)
+                    .or(computerBases.eq((byte) 1).and(players.eq((byte) 0))));
+
+            ByteVector next = zero.blend(PLAYER, player.or(playerBirth))
+                    .blend(COMPUTER, computer.or(computerBirth))
+                    .blend(PLAYER_BASE, playerBase.and(fewComputers))
+                    .blend(COMPUTER_BASE, computerBase.and(fewPlayers));
+            next.intoArray(row, x);
+            numLive += next.compare(VectorOperators.NE, DEAD).trueCount();
+            bases1 += playerBase.trueCount();
+            bases2 += computerBase.trueCount();
+        }
+
+        //The cells left over at the end of the row
+        for (; x < width; x++){
+            int window = 0;
+            for (int dy = 0; dy < 3; dy++){
+                for (int dx = 0; dx < 3; dx++){
+                    window += countIncrement[halo[(y + dy) * haloSize + x + dx]];
+                }
+            }
+            int state = halo[middle + x];
+            byte nextState = table[(state << RuleSet.stateShift) | window];
+            row[x] = nextState;
+            if (nextState != DEAD){
+                numLive++;
+            }
+            if (state == PLAYER_BASE){
+                bases1++;
+            }
+            else if (state == COMPUTER_BASE){
+                bases2++;
+            }
+        }
+        return numLive << 40 | bases1 << 20 | bases2;
+    }
+}